@@ -0,0 +1,214 @@
+package com.boxboxjason.games._2048;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the Grid operations by grid size, board fill level and direction. The jmh profile always
+ * runs {@code -prof gc}, so each result also shows how much the operation allocates.
+ *
+ * <p>Partly filled boards hold random tiles on the share of cells given by the fill level, always
+ * leaving one cell empty for a spawn. Full boards hold a tile in every cell, with at least one
+ * mergeable pair ({@code full}) or none ({@code stuck}), so that hasValidMoves and isFull get past
+ * the empty-cell count to the scan for a merge. Each benchmark cycles through 64 boards so that no
+ * single board gets learnt by the branch predictor. Benchmarks that change the board first load
+ * the next one into the grid: {@link #load} measures that part alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class GridBenchmark {
+  private static final int BOARDS = 64;
+  // Tiles on prepared boards go up to 2048, so that merges are neither rare nor everywhere
+  private static final int MAX_EXPONENT = 11;
+  // Random games last about 30 times longer with each size, millions of moves from 8x8 on, so
+  // playouts stop here: whole games up to 6x6, the same length of play beyond
+  private static final int PLAYOUT_MOVES = 10_000;
+  private static final Direction[] DIRECTIONS = Direction.values();
+  // Fill levels of boards without an empty cell, with and without a merge
+  private static final String FULL = "full";
+  private static final String STUCK = "stuck";
+
+  /** Prepared boards of one size and of the fill level given by the subclass. */
+  @State(Scope.Thread)
+  public abstract static class Prepared {
+    @Param({"2", "3", "4", "5", "6", "7", "8", "9", "10"})
+    public int size;
+
+    // One grid per board for the benchmarks that only read, one to load boards into for the others
+    private Grid[] grids;
+    private byte[][] boards;
+    private Grid grid;
+    private int next;
+
+    abstract String fill();
+
+    @Setup
+    public void prepare() {
+      SplittableRandom random = new SplittableRandom(31L * size + fill().hashCode());
+      grids = new Grid[BOARDS];
+      boards = new byte[BOARDS][];
+      for (int b = 0; b < BOARDS; b++) {
+        boards[b] = board(random, size, fill());
+        grids[b] = new Grid(size, random.split());
+        grids[b].setCells(boards[b]);
+      }
+      grid = new Grid(size, random.split());
+    }
+
+    Grid nextGrid() {
+      next = (next + 1) & (BOARDS - 1);
+      return grids[next];
+    }
+
+    Grid loadNext() {
+      next = (next + 1) & (BOARDS - 1);
+      grid.setCells(boards[next]);
+      return grid;
+    }
+  }
+
+  /** Boards of every fill level, full ones included. */
+  @State(Scope.Thread)
+  public static class Boards extends Prepared {
+    // Share of the cells holding a tile, or FULL or STUCK
+    @Param({"0.25", "0.5", "0.9", FULL, STUCK})
+    public String fill;
+
+    @Override
+    String fill() {
+      return fill;
+    }
+  }
+
+  /** Boards with room for a spawn. */
+  @State(Scope.Thread)
+  public static class SpawnBoards extends Prepared {
+    @Param({"0.25", "0.5", "0.9"})
+    public String fill;
+
+    @Override
+    String fill() {
+      return fill;
+    }
+  }
+
+  /** Prepared boards and the direction to move them in. */
+  @State(Scope.Thread)
+  public static class Moves extends Boards {
+    @Param({"UP", "DOWN", "LEFT", "RIGHT"})
+    public Direction direction;
+  }
+
+  /** A grid and a random stream to play whole games with. */
+  @State(Scope.Thread)
+  public static class Games {
+    @Param({"2", "3", "4", "5", "6", "7", "8", "9", "10"})
+    public int size;
+
+    private Grid grid;
+    private SplittableRandom random;
+
+    @Setup
+    public void prepare() {
+      random = new SplittableRandom(size);
+      grid = new Grid(size, random.split());
+    }
+  }
+
+  @Benchmark
+  public Grid load(Boards state) {
+    return state.loadNext();
+  }
+
+  @Benchmark
+  public boolean move(Moves state) {
+    return state.loadNext().move(state.direction);
+  }
+
+  @Benchmark
+  public boolean moveAndAddTile(Moves state) {
+    return state.loadNext().moveAndAddTile(state.direction);
+  }
+
+  @Benchmark
+  public Grid addRandomTile(SpawnBoards state) {
+    Grid grid = state.loadNext();
+    grid.addRandomTile();
+    return grid;
+  }
+
+  @Benchmark
+  public boolean hasValidMoves(Boards state) {
+    return state.nextGrid().hasValidMoves();
+  }
+
+  @Benchmark
+  public boolean isFull(Boards state) {
+    return state.nextGrid().isFull();
+  }
+
+  private static byte[] board(SplittableRandom random, int size, String fill) {
+    int cells = size * size;
+    byte[] board = new byte[cells];
+    if (fill.equals(FULL) || fill.equals(STUCK)) {
+      // Every tile differs from its left and upper neighbours, so no two neighbours merge
+      for (int cell = 0; cell < cells; cell++) {
+        byte exponent;
+        do {
+          exponent = (byte) (1 + random.nextInt(MAX_EXPONENT));
+        } while (cell % size > 0 && exponent == board[cell - 1]
+            || cell >= size && exponent == board[cell - size]);
+        board[cell] = exponent;
+      }
+      if (fill.equals(FULL)) {
+        // Copy a tile onto a neighbour, in a row or a column; the copy may match its other
+        // neighbours too
+        int line = random.nextInt(size);
+        int first = random.nextInt(size - 1);
+        if (random.nextBoolean()) {
+          board[line * size + first + 1] = board[line * size + first];
+        } else {
+          board[(first + 1) * size + line] = board[first * size + line];
+        }
+      }
+      return board;
+    }
+    int tiles = Math.clamp(Math.round(Double.parseDouble(fill) * cells), 1, cells - 1);
+    for (int placed = 0; placed < tiles; ) {
+      int cell = random.nextInt(cells);
+      if (board[cell] == 0) {
+        board[cell] = (byte) (1 + random.nextInt(MAX_EXPONENT));
+        placed++;
+      }
+    }
+    return board;
+  }
+
+  // Random moves from a new grid until the game ends or PLAYOUT_MOVES are played
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int playout(Games state) {
+    Grid grid = state.grid;
+    grid.reinit(state.size);
+    for (int moves = 0; moves < PLAYOUT_MOVES && grid.hasValidMoves(); moves++) {
+      grid.moveAndAddTile(DIRECTIONS[state.random.nextInt(DIRECTIONS.length)]);
+    }
+    return grid.getScore();
+  }
+}
@@ -0,0 +1,191 @@
+package com.boxboxjason.games._2048;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of loading, adding to and querying the score file, by the number of scores it holds. Files
+ * are written to a temporary directory, so adding a score includes the real rewrite of the file.
+ *
+ * <p>A manager keeps at most 10 scores once one is added, so large lists only come from loading a
+ * large file: {@link #addScore} measures the steady state, {@link #firstAddScore} the first add
+ * after loading, which sorts and cuts the whole list. Files are written behind, so these measure
+ * what the caller waits for; {@link #addScoreAndFlush} includes the write to disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class ScoreManagerBenchmark {
+  // Tiles up to 2^17 on 4x4, so scores up to a few million
+  private static final int MAX_SCORE = 4_000_000;
+
+  /** A score file of the given length, in a temporary directory. */
+  @State(Scope.Benchmark)
+  public static class ScoreFile {
+    @Param({"10", "1000", "100000", "1000000"})
+    public int scores;
+
+    Path directory;
+    Path file;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+      directory = Files.createTempDirectory("scores");
+      file = directory.resolve("scores.json");
+      // Saved files are sorted, but a file edited by hand need not be
+      SplittableRandom random = new SplittableRandom(scores);
+      List<Score> list = new ArrayList<>(scores);
+      for (int i = 0; i < scores; i++) {
+        list.add(randomScore(random));
+      }
+      try (Writer writer = Files.newBufferedWriter(file)) {
+        new Gson().toJson(list, writer);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+      try (Stream<Path> paths = Files.walk(directory)) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  /** A manager loaded from a score file and never added to, so it holds every score. */
+  @State(Scope.Thread)
+  public static class Loaded {
+    @Param({"2", "4", "10"})
+    public int gridSize;
+
+    ScoreManager manager;
+
+    @Setup(Level.Trial)
+    public void load(ScoreFile file) {
+      manager = new ScoreManager(file.file.toString());
+    }
+  }
+
+  /** A manager on its own file, freshly loaded before every call. */
+  @State(Scope.Thread)
+  public static class Fresh {
+    ScoreManager manager;
+    private Path copy;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void prepare(ScoreFile file) {
+      copy = file.directory.resolve("fresh.json");
+      random = new SplittableRandom(file.scores);
+    }
+
+    @Setup(Level.Invocation)
+    public void load(ScoreFile file) throws IOException {
+      Files.copy(file.file, copy, StandardCopyOption.REPLACE_EXISTING);
+      manager = new ScoreManager(copy.toString());
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() {
+      manager.close();
+    }
+  }
+
+  /** A manager on its own file, already cut to the top 10 by earlier adds. */
+  @State(Scope.Thread)
+  public static class Steady {
+    ScoreManager manager;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void load(ScoreFile file) {
+      manager = new ScoreManager(file.directory.resolve("steady.json").toString());
+      random = new SplittableRandom(file.scores);
+      for (int i = 0; i < 10; i++) {
+        manager.addScore(randomScore(random));
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+      manager.close();
+    }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public ScoreManager load(ScoreFile file) {
+    return new ScoreManager(file.file.toString());
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public ScoreManager addScore(Steady state) {
+    state.manager.addScore(randomScore(state.random));
+    return state.manager;
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public ScoreManager addScoreAndFlush(Steady state) {
+    state.manager.addScore(randomScore(state.random));
+    state.manager.flush();
+    return state.manager;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Measurement(iterations = 10, batchSize = 1)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public ScoreManager firstAddScore(Fresh state) {
+    state.manager.addScore(randomScore(state.random));
+    return state.manager;
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public List<Score> topScores(Loaded state) {
+    return state.manager.getTopScores();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public List<Score> topScoresForGridSize(Loaded state) {
+    return state.manager.getTopScoresForGridSize(state.gridSize);
+  }
+
+  // Half of the games on 4x4, the others spread over all sizes
+  private static Score randomScore(SplittableRandom random) {
+    int gridSize = random.nextBoolean() ? 4 : 2 + random.nextInt(9);
+    return new Score(
+        "player" + random.nextInt(100),
+        random.nextInt(MAX_SCORE),
+        gridSize,
+        random.nextLong(3_600_000L));
+  }
+}
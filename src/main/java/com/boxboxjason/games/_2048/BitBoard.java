@@ -0,0 +1,349 @@
+package com.boxboxjason.games._2048;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * 4x4 engine packing the whole board into a single long of 4-bit tile exponents.
+ *
+ * <p>Cell (row, col) lives in nibble {@code 4 * row + col}, so each row is one 16-bit chunk. Moves
+ * are applied one row at a time through precomputed 65,536-entry tables, vertical moves go through
+ * a transpose.
+ */
+public class BitBoard implements Board {
+  public static final int SIZE = 4;
+
+  private static final long ROW_MASK = 0xFFFFL;
+  private static final int MAX_EXPONENT = 15;
+
+  // Row after a LEFT / RIGHT move, and the score gained by that move (same for both ways)
+  private static final char[] ROW_LEFT = new char[1 << 16];
+  private static final char[] ROW_RIGHT = new char[1 << 16];
+  private static final int[] ROW_SCORE = new int[1 << 16];
+
+  static {
+    int[] line = new int[SIZE];
+    for (int row = 0; row < ROW_LEFT.length; row++) {
+      for (int i = 0; i < SIZE; i++) {
+        line[i] = (row >>> (4 * i)) & 0xF;
+      }
+      int gain = mergeLeft(line);
+      int left = 0;
+      for (int i = 0; i < SIZE; i++) {
+        left |= line[i] << (4 * i);
+      }
+      ROW_LEFT[row] = (char) left;
+      ROW_SCORE[row] = gain;
+      ROW_RIGHT[reverseRow(row)] = (char) reverseRow(left);
+    }
+  }
+
+  private long board;
+  private RandomGenerator random;
+  private int score;
+  private long started;
+
+  public BitBoard() {
+    this(new SplittableRandom());
+  }
+
+  public BitBoard(long seed) {
+    this(new SplittableRandom(seed));
+  }
+
+  public BitBoard(RandomGenerator random) {
+    this.random = random;
+    this.reinit(SIZE);
+  }
+
+  @Override
+  public void reinit(int newSize) {
+    if (newSize != SIZE) {
+      throw new IllegalArgumentException("BitBoard only supports a grid size of " + SIZE);
+    }
+    this.board = 0L;
+    this.score = 0;
+    this.started = System.currentTimeMillis();
+    addRandomTile();
+    addRandomTile();
+  }
+
+  public void reinit(int newSize, long seed) {
+    this.random = new SplittableRandom(seed);
+    reinit(newSize);
+  }
+
+  @Override
+  public int[][] getGrid() {
+    int[][] values = new int[SIZE][SIZE];
+    for (int row = 0; row < SIZE; row++) {
+      for (int col = 0; col < SIZE; col++) {
+        int exponent = exponentAt(board, row, col);
+        values[row][col] = exponent == 0 ? 0 : 1 << exponent;
+      }
+    }
+    return values;
+  }
+
+  // Values round down to a power of two like in Grid; tiles above 2^15 saturate, like merges do
+  @Override
+  public void setGrid(int[][] values) {
+    if (values.length != SIZE) {
+      throw new IllegalArgumentException("Expected " + SIZE + " rows, got " + values.length);
+    }
+    for (int[] row : values) {
+      if (row.length != SIZE) {
+        throw new IllegalArgumentException("Expected " + SIZE + " columns, got " + row.length);
+      }
+    }
+    board = pack(values);
+  }
+
+  @Override
+  public int getSize() {
+    return SIZE;
+  }
+
+  @Override
+  public int getScore() {
+    return score;
+  }
+
+  @Override
+  public long getDuration() {
+    return System.currentTimeMillis() - started;
+  }
+
+  public long getBoard() {
+    return board;
+  }
+
+  public void setBoard(long board) {
+    this.board = board;
+  }
+
+  @Override
+  public void addRandomTile() {
+    board = spawn(board, random);
+  }
+
+  @Override
+  public boolean moveAndAddTile(Direction direction) {
+    boolean moved = move(direction);
+    if (moved) {
+      addRandomTile();
+    }
+    return moved;
+  }
+
+  @Override
+  public boolean move(Direction direction) {
+    long moved = move(board, direction);
+    if (moved == board) {
+      return false;
+    }
+    score += score(board, direction);
+    board = moved;
+    return true;
+  }
+
+  @Override
+  public boolean isFull() {
+    return countEmpty(board) == 0;
+  }
+
+  @Override
+  public boolean hasValidMoves() {
+    if (countEmpty(board) > 0) {
+      return true;
+    }
+    // A zero nibble in the XOR with the right / lower neighbour means two equal adjacent tiles
+    long horizontal = board ^ (board >>> 4);
+    long vertical = board ^ (board >>> 16);
+    for (int i = 0; i < SIZE * SIZE; i++) {
+      int shift = 4 * i;
+      if (i % SIZE != SIZE - 1 && ((horizontal >>> shift) & 0xF) == 0) {
+        return true;
+      }
+      if (i < SIZE * (SIZE - 1) && ((vertical >>> shift) & 0xF) == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static long move(long board, Direction direction) {
+    return switch (direction) {
+      case LEFT -> applyRows(board, ROW_LEFT);
+      case RIGHT -> applyRows(board, ROW_RIGHT);
+      case UP -> transpose(applyRows(transpose(board), ROW_LEFT));
+      case DOWN -> transpose(applyRows(transpose(board), ROW_RIGHT));
+    };
+  }
+
+  public static int score(long board, Direction direction) {
+    long lines =
+        direction == Direction.LEFT || direction == Direction.RIGHT ? board : transpose(board);
+    int gain = 0;
+    for (int row = 0; row < SIZE; row++) {
+      gain += ROW_SCORE[(int) ((lines >>> (16 * row)) & ROW_MASK)];
+    }
+    return gain;
+  }
+
+  public static long transpose(long board) {
+    // Swap the off-diagonal cells of each 2x2 block, then the off-diagonal 2x2 blocks
+    long a1 = board & 0xF0F00F0FF0F00F0FL;
+    long a2 = board & 0x0000F0F00000F0F0L;
+    long a3 = board & 0x0F0F00000F0F0000L;
+    long a = a1 | (a2 << 12) | (a3 >>> 12);
+    long b1 = a & 0xFF00FF0000FF00FFL;
+    long b2 = a & 0x00FF00FF00000000L;
+    long b3 = a & 0x00000000FF00FF00L;
+    return b1 | (b2 >>> 24) | (b3 << 24);
+  }
+
+  // Smallest of the 8 rotations and reflections of the board
+  public static long canonical(long board) {
+    long best = Long.MAX_VALUE;
+    long current = board;
+    for (int i = 0; i < 2; i++) {
+      long mirrored = mirror(current);
+      long flipped = flip(current);
+      best = Math.min(best, Math.min(current, mirrored));
+      best = Math.min(best, Math.min(flipped, mirror(flipped)));
+      current = transpose(board);
+    }
+    return best;
+  }
+
+  // Reverses the order of the cells in each row
+  public static long mirror(long board) {
+    return ((board & 0x000F000F000F000FL) << 12)
+        | ((board & 0x00F000F000F000F0L) << 4)
+        | ((board >>> 4) & 0x00F000F000F000F0L)
+        | ((board >>> 12) & 0x000F000F000F000FL);
+  }
+
+  // Reverses the order of the rows
+  public static long flip(long board) {
+    return (board << 48) | ((board & 0xFFFF0000L) << 16) | ((board >>> 16) & 0xFFFF0000L)
+        | (board >>> 48);
+  }
+
+  public static int countEmpty(long board) {
+    int empty = 0;
+    for (int i = 0; i < SIZE * SIZE; i++) {
+      if (((board >>> (4 * i)) & 0xF) == 0) {
+        empty++;
+      }
+    }
+    return empty;
+  }
+
+  public static int exponentAt(long board, int row, int col) {
+    return (int) ((board >>> (4 * (SIZE * row + col))) & 0xF);
+  }
+
+  public static long withExponent(long board, int row, int col, int exponent) {
+    int shift = 4 * (SIZE * row + col);
+    return (board & ~(0xFL << shift)) | ((long) exponent << shift);
+  }
+
+  public static long pack(int[][] grid) {
+    long packed = 0L;
+    for (int row = 0; row < SIZE; row++) {
+      for (int col = 0; col < SIZE; col++) {
+        packed = withExponent(packed, row, col, exponentOf(grid[row][col]));
+      }
+    }
+    return packed;
+  }
+
+  // Packs a row-major array of exponents, exponents above 15 saturating
+  public static long fromExponents(byte[] cells) {
+    long packed = 0L;
+    for (int cell = 0; cell < SIZE * SIZE; cell++) {
+      packed |= (long) Math.min(cells[cell], MAX_EXPONENT) << (4 * cell);
+    }
+    return packed;
+  }
+
+  public static void toExponents(long board, byte[] cells) {
+    for (int cell = 0; cell < SIZE * SIZE; cell++) {
+      cells[cell] = (byte) ((board >>> (4 * cell)) & 0xF);
+    }
+  }
+
+  public static long spawn(long board, RandomGenerator random) {
+    int empty = countEmpty(board);
+    if (empty == 0) {
+      throw new IllegalStateException("Cannot add a tile to a full grid");
+    }
+    int target = random.nextInt(empty);
+    // 90% chance for 2 (exponent 1), 10% chance for 4 (exponent 2)
+    long tile = random.nextDouble() < 0.9 ? 1L : 2L;
+    for (int i = 0; i < SIZE * SIZE; i++) {
+      if (((board >>> (4 * i)) & 0xF) == 0 && target-- == 0) {
+        return board | (tile << (4 * i));
+      }
+    }
+    throw new IllegalStateException("Cannot add a tile to a full grid");
+  }
+
+  private static long applyRows(long board, char[] table) {
+    long result = 0L;
+    for (int row = 0; row < SIZE; row++) {
+      int shift = 16 * row;
+      result |= (long) table[(int) ((board >>> shift) & ROW_MASK)] << shift;
+    }
+    return result;
+  }
+
+  private static int mergeLeft(int[] line) {
+    int gain = 0;
+    int target = 0;
+    int previous = 0;
+    for (int i = 0; i < SIZE; i++) {
+      int exponent = line[i];
+      if (exponent == 0) {
+        continue;
+      }
+      if (previous == exponent) {
+        // 32768 + 32768 stays 32768: a nibble cannot hold a larger exponent
+        int merged = Math.min(exponent + 1, MAX_EXPONENT);
+        line[target - 1] = merged;
+        gain += 1 << merged;
+        previous = 0;
+      } else {
+        line[target++] = exponent;
+        previous = exponent;
+      }
+    }
+    while (target < SIZE) {
+      line[target++] = 0;
+    }
+    return gain;
+  }
+
+  private static int reverseRow(int row) {
+    return ((row & 0xF) << 12) | ((row & 0xF0) << 4) | ((row >>> 4) & 0xF0) | (row >>> 12);
+  }
+
+  private static int exponentOf(int value) {
+    return value <= 0 ? 0 : Math.min(31 - Integer.numberOfLeadingZeros(value), MAX_EXPONENT);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int row = 0; row < SIZE; row++) {
+      for (int col = 0; col < SIZE; col++) {
+        int exponent = exponentAt(board, row, col);
+        sb.append(String.format("%4d", exponent == 0 ? 0 : 1 << exponent));
+      }
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+}
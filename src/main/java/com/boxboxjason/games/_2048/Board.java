@@ -0,0 +1,29 @@
+package com.boxboxjason.games._2048;
+
+/** Common contract of the game engines, so callers can switch between implementations. */
+public interface Board {
+  void reinit(int newSize);
+
+  // A copy of the tile values, 0 for an empty cell
+  int[][] getGrid();
+
+  // Replaces the tiles with the given values, keeping the score; values round down to a power of
+  // two, 0 or less being an empty cell
+  void setGrid(int[][] values);
+
+  int getSize();
+
+  int getScore();
+
+  long getDuration();
+
+  void addRandomTile();
+
+  boolean moveAndAddTile(Direction direction);
+
+  boolean move(Direction direction);
+
+  boolean isFull();
+
+  boolean hasValidMoves();
+}
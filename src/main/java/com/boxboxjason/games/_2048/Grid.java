@@ -1,250 +1,353 @@
 package com.boxboxjason.games._2048;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
-public class Grid {
-  private int[][] grid;
+public class Grid implements Board {
+  // Score gain reported for a direction in which no tile can move
+  public static final int NO_MOVE = -1;
+  // Largest tile, 2^30: two of them do not merge, as a larger tile would not fit the int values of
+  // getGrid() and of the score gained
+  public static final int MAX_EXPONENT = 30;
+
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  // Tiles are stored as log2 exponents in one flat row-major array, 0 being an empty cell
+  private byte[] cells;
   private int size;
-  private Random random;
+  private RandomGenerator random;
   private int score;
   private long started;
+  // Scratch board every move is computed into, so moves do not allocate
+  private byte[] next;
+  // Indices of the empty cells in no particular order, and the slot of each cell in it (-1 if
+  // the cell holds a tile), so spawning and fullness checks do not scan the board
+  private int[] emptyCells;
+  private int[] emptySlots;
+  private int emptyCount;
+  // Zobrist hash of the cells, updated with every write
+  private long hash;
+  private final MoveJournal journal = new MoveJournal();
+  private final MoveJournal.CellWriter restorer = this::setCell;
 
   public Grid(int size) {
+    this(size, new SplittableRandom());
+  }
+
+  // Same seed and same moves always replay the same game
+  public Grid(int size, long seed) {
+    this(size, new SplittableRandom(seed));
+  }
+
+  // Tiles are drawn from the given stream, e.g. one SplittableRandom.split() per worker thread
+  public Grid(int size, RandomGenerator random) {
     if (size < 2) {
       throw new IllegalArgumentException("Grid size must be at least 2");
     } else if (size > 10) {
       throw new IllegalArgumentException("Grid size must not exceed 10");
     }
+    this.random = random;
     this.reinit(size);
   }
 
+  @Override
   public void reinit(int newSize) {
     this.size = newSize;
-    this.grid = new int[newSize][newSize];
-    this.random = new Random();
+    this.cells = new byte[newSize * newSize];
+    this.next = new byte[newSize * newSize];
+    this.emptyCells = new int[cells.length];
+    this.emptySlots = new int[cells.length];
+    for (int i = 0; i < cells.length; i++) {
+      emptyCells[i] = i;
+      emptySlots[i] = i;
+    }
+    this.emptyCount = cells.length;
+    this.hash = Zobrist.emptyHash(newSize);
+    journal.clear();
     this.score = 0;
     this.started = System.currentTimeMillis();
     addRandomTile();
     addRandomTile();
   }
 
+  // Restarts the tile stream from the given seed before starting the new game
+  public void reinit(int newSize, long seed) {
+    this.random = new SplittableRandom(seed);
+    reinit(newSize);
+  }
+
+  /** Returns a copy of the tile values; edits to it do not reach the grid, see {@link #setGrid}. */
+  @Override
   public int[][] getGrid() {
-    return grid;
+    int[][] values = new int[size][size];
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        values[row][col] = valueOf(cells[row * size + col]);
+      }
+    }
+    return values;
   }
 
+  /**
+   * Replaces the tiles with the given values, keeping the score. Values are rounded down to a power
+   * of two, 0 or less being an empty cell. Clears the undo history.
+   */
+  @Override
+  public void setGrid(int[][] values) {
+    if (values.length != size) {
+      throw new IllegalArgumentException("Expected " + size + " rows, got " + values.length);
+    }
+    for (int row = 0; row < size; row++) {
+      if (values[row].length != size) {
+        throw new IllegalArgumentException(
+            "Expected " + size + " columns, got " + values[row].length + " in row " + row);
+      }
+      for (int col = 0; col < size; col++) {
+        int index = row * size + col;
+        byte exponent = exponentOf(values[row][col]);
+        if (cells[index] != exponent) {
+          setCell(index, exponent);
+        }
+      }
+    }
+  }
+
+  @Override
   public int getSize() {
     return size;
   }
 
+  @Override
   public int getScore() {
     return score;
   }
 
+  @Override
   public long getDuration() {
     return System.currentTimeMillis() - started;
   }
 
+  public long getHash() {
+    return hash;
+  }
+
+  // Same key for all 8 rotations and reflections of the board
+  public long getCanonicalKey() {
+    return Zobrist.canonicalHash(cells, size);
+  }
+
+  public int getExponent(int row, int col) {
+    return cells[row * size + col];
+  }
+
+  @Override
   public void addRandomTile() {
-    int x;
-    int y;
-    do {
-      x = random.nextInt(size);
-      y = random.nextInt(size);
-    } while (grid[x][y] != 0);
+    if (emptyCount == 0) {
+      throw new IllegalStateException("Cannot add a tile to a full grid");
+    }
+    int index = emptyCells[random.nextInt(emptyCount)];
 
     // Generate a random number and set the tile value based on the probability
-    grid[x][y] = random.nextDouble() < 0.9 ? 2 : 4; // 90% chance for 2, 10% chance for 4
+    setCell(index, (byte) (random.nextDouble() < 0.9 ? 1 : 2)); // 90% chance for 2, 10% for 4
   }
 
+  @Override
   public boolean moveAndAddTile(Direction direction) {
+    int scoreBefore = score;
+    journal.begin();
     boolean moved = move(direction);
     if (moved) {
       addRandomTile();
+      journal.commit(score - scoreBefore);
+    } else {
+      journal.abort();
     }
     return moved;
   }
 
-  public boolean move(Direction direction) {
-    boolean moved = false;
-    switch (direction) {
-      case UP:
-        for (int col = 0; col < size; col++) {
-          moved |= moveColumnUp(col);
-        }
-        break;
-      case RIGHT:
-        for (int row = 0; row < size; row++) {
-          moved |= moveRowRight(row);
-        }
-        break;
-      case DOWN:
-        for (int col = 0; col < size; col++) {
-          moved |= moveColumnDown(col);
-        }
-        break;
-      case LEFT:
-        for (int row = 0; row < size; row++) {
-          moved |= moveRowLeft(row);
-        }
-        break;
-      default:
-        throw new IllegalArgumentException("Invalid direction");
-    }
-    return moved;
+  public boolean canUndo() {
+    return journal.canUndo();
   }
 
-  private boolean moveColumnUp(int col) {
-    boolean moved = false;
-    int[] compact = new int[size];
-    int compactSize = 0;
+  public boolean canRedo() {
+    return journal.canRedo();
+  }
 
-    for (int row = 0; row < size; row++) {
-      if (grid[row][col] != 0) {
-        compact[compactSize++] = grid[row][col];
-      }
+  // Reverts the last moveAndAddTile, spawned tile included; any other edit clears the history
+  public boolean undo() {
+    if (!canUndo()) {
+      return false;
     }
+    this.score -= journal.undo(restorer);
+    return true;
+  }
 
-    int[] newColumn = new int[size];
-    int newIndex = 0;
-    int i = 0;
-    while (i < compactSize) {
-      int value = compact[i];
-      if (i + 1 < compactSize && compact[i + 1] == value) {
-        value *= 2;
-        this.score += value;
-        newColumn[newIndex++] = value;
-        i += 2;
-      } else {
-        newColumn[newIndex++] = value;
-        i++;
-      }
+  public boolean redo() {
+    if (!canRedo()) {
+      return false;
     }
+    this.score += journal.redo(restorer);
+    return true;
+  }
 
-    for (int row = 0; row < size; row++) {
-      if (grid[row][col] != newColumn[row]) {
-        moved = true;
+  // Caps the memory used by the undo history, 0 (the default) disabling it; clears the current
+  // history
+  public void setUndoMemoryLimit(int bytes) {
+    journal.setLimitBytes(bytes);
+  }
+
+  @Override
+  public boolean move(Direction direction) {
+    int gain = slide(cells, next, size, direction);
+    if (gain == NO_MOVE) {
+      return false;
+    }
+    this.score += gain;
+    for (int i = 0; i < cells.length; i++) {
+      if (cells[i] != next[i]) {
+        setCell(i, next[i]);
       }
-      grid[row][col] = newColumn[row];
     }
+    return true;
+  }
 
-    return moved;
+  /**
+   * Writes the board each direction would lead to into {@code successors[direction.ordinal()]}
+   * and the score it would gain into {@code gains[direction.ordinal()]}, {@link #NO_MOVE} marking
+   * an illegal move. The grid itself is left untouched.
+   */
+  public void previewMoves(byte[][] successors, int[] gains) {
+    for (Direction direction : DIRECTIONS) {
+      gains[direction.ordinal()] =
+          slide(cells, successors[direction.ordinal()], size, direction);
+    }
   }
 
-  private boolean moveRowRight(int row) {
-    boolean moved = false;
-    for (int col = size - 2; col >= 0; col--) {
-      if (grid[row][col] != 0) {
-        int targetCol = col;
-        while (targetCol < size - 1 && grid[row][targetCol + 1] == 0) {
-          grid[row][targetCol + 1] = grid[row][targetCol];
-          grid[row][targetCol] = 0;
-          targetCol++;
-          moved = true;
-        }
-        if (targetCol < size - 1 && grid[row][targetCol + 1] == grid[row][targetCol]) {
-          grid[row][targetCol + 1] *= 2;
-          this.score += grid[row][targetCol + 1];
-          grid[row][targetCol] = 0;
-          moved = true;
-        }
+  public int preview(Direction direction, byte[] successor) {
+    return slide(cells, successor, size, direction);
+  }
+
+  public void copyCells(byte[] destination) {
+    System.arraycopy(cells, 0, destination, 0, cells.length);
+  }
+
+  // Replaces the board with the given exponents, keeping the score; like setGrid it clears the
+  // undo history
+  void setCells(byte[] exponents) {
+    for (int i = 0; i < cells.length; i++) {
+      if (cells[i] != exponents[i]) {
+        setCell(i, exponents[i]);
       }
     }
-    return moved;
   }
 
-  private boolean moveColumnDown(int col) {
+  /**
+   * Moves the size x size board of exponents in src into dst, which may be the same array.
+   * Returns the score gained, or {@link #NO_MOVE} if no tile moved, in which case the contents of
+   * dst are unspecified.
+   */
+  public static int slide(byte[] src, byte[] dst, int size, Direction direction) {
+    int gain = 0;
     boolean moved = false;
-    for (int row = size - 2; row >= 0; row--) {
-      if (grid[row][col] != 0) {
-        int targetRow = row;
-        while (targetRow < size - 1 && grid[targetRow + 1][col] == 0) {
-          grid[targetRow + 1][col] = grid[targetRow][col];
-          grid[targetRow][col] = 0;
-          targetRow++;
-          moved = true;
-        }
-        if (targetRow < size - 1 && grid[targetRow + 1][col] == grid[targetRow][col]) {
-          grid[targetRow + 1][col] *= 2;
-          this.score += grid[targetRow + 1][col];
-          grid[targetRow][col] = 0;
-          moved = true;
-        }
+    for (int i = 0; i < size; i++) {
+      int lineGain =
+          switch (direction) {
+            case UP -> slideLine(src, dst, size, i, size);
+            case RIGHT -> slideLine(src, dst, size, i * size + size - 1, -1);
+            case DOWN -> slideLine(src, dst, size, (size - 1) * size + i, -size);
+            case LEFT -> slideLine(src, dst, size, i * size, 1);
+          };
+      if (lineGain != NO_MOVE) {
+        gain += lineGain;
+        moved = true;
       }
     }
-    return moved;
+    return moved ? gain : NO_MOVE;
   }
 
-  private boolean moveRowLeft(int row) {
+  // Slides and merges the line starting at cell index start towards it, walking away by step.
+  // Cells are written in reading order and never ahead of it, so src and dst may be the same.
+  static int slideLine(byte[] src, byte[] dst, int size, int start, int step) {
+    int gain = 0;
     boolean moved = false;
-    int[] compact = new int[size];
-    int compactSize = 0;
-
-    for (int col = 0; col < size; col++) {
-      if (grid[row][col] != 0) {
-        compact[compactSize++] = grid[row][col];
+    int write = start;
+    // Tile waiting for a possible merge partner, each tile merging at most once
+    byte pending = 0;
+    for (int i = 0, read = start; i < size; i++, read += step) {
+      byte exponent = src[read];
+      if (exponent == 0) {
+        continue;
       }
-    }
-
-    int[] newRow = new int[size];
-    int newIndex = 0;
-    int i = 0;
-    while (i < compactSize) {
-      int value = compact[i];
-      if (i + 1 < compactSize && compact[i + 1] == value) {
-        value *= 2;
-        this.score += value;
-        newRow[newIndex++] = value;
-        i += 2;
+      if (pending == 0) {
+        pending = exponent;
+        continue;
+      }
+      byte value = pending;
+      if (pending == exponent && pending < MAX_EXPONENT) {
+        value++;
+        gain += 1 << value;
+        pending = 0;
       } else {
-        newRow[newIndex++] = value;
-        i++;
+        pending = exponent;
       }
+      moved |= src[write] != value;
+      dst[write] = value;
+      write += step;
     }
-
-    for (int col = 0; col < size; col++) {
-      if (grid[row][col] != newRow[col]) {
-        moved = true;
-      }
-      grid[row][col] = newRow[col];
+    if (pending != 0) {
+      moved |= src[write] != pending;
+      dst[write] = pending;
+      write += step;
     }
+    for (int end = start + size * step; write != end; write += step) {
+      moved |= src[write] != 0;
+      dst[write] = 0;
+    }
+    return moved ? gain : NO_MOVE;
+  }
 
-    return moved;
+  // Single write path for the board, keeping the empty-cell index, hash and journal in sync
+  private void setCell(int index, byte exponent) {
+    journal.onWrite(index, cells[index], exponent);
+    hash ^= Zobrist.key(index, cells[index]) ^ Zobrist.key(index, exponent);
+    if (cells[index] == 0 && exponent != 0) {
+      // Swap-remove the cell from the empty list
+      int slot = emptySlots[index];
+      int last = emptyCells[--emptyCount];
+      emptyCells[slot] = last;
+      emptySlots[last] = slot;
+      emptySlots[index] = -1;
+    } else if (cells[index] != 0 && exponent == 0) {
+      emptyCells[emptyCount] = index;
+      emptySlots[index] = emptyCount++;
+    }
+    cells[index] = exponent;
   }
 
+  @Override
   public boolean isFull() {
-    for (int[] row : grid) {
-      for (int tile : row) {
-        if (tile == 0) {
-          return false;
-        }
-      }
-    }
-    return true;
+    return emptyCount == 0;
   }
 
+  @Override
   public boolean hasValidMoves() {
-    for (int row = 0; row < size; row++) {
-      for (int col = 0; col < size; col++) {
-        if (grid[row][col] == 0) {
-          return true;
-        }
-        if (row < size - 1 && grid[row][col] == grid[row + 1][col]) {
-          return true;
-        }
-        if (col < size - 1 && grid[row][col] == grid[row][col + 1]) {
-          return true;
-        }
-      }
-    }
-    return false;
+    return emptyCount > 0 || LineKernels.hasMergeablePair(cells, size);
+  }
+
+  private static byte exponentOf(int value) {
+    return (byte) (value <= 0 ? 0 : 31 - Integer.numberOfLeadingZeros(value));
+  }
+
+  private static int valueOf(byte exponent) {
+    return exponent == 0 ? 0 : 1 << exponent;
   }
 
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    for (int[] row : grid) {
-      for (int tile : row) {
-        sb.append(String.format("%4d", tile));
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        sb.append(String.format("%4d", valueOf(cells[row * size + col])));
       }
       sb.append("\n");
     }
@@ -0,0 +1,95 @@
+package com.boxboxjason.games._2048;
+
+/**
+ * Whole-board scans behind move legality: empty cells and mergeable neighbours.
+ *
+ * <p>When the {@code jdk.incubator.vector} module is present (run with {@code --add-modules
+ * jdk.incubator.vector}) boards of {@link #VECTOR_MIN_SIZE} and up are scanned with SIMD
+ * comparisons of whole rows at once. Otherwise, or when the system property {@code
+ * com.boxboxjason.games._2048.vector} is false, the plain loops here are used.
+ *
+ * <p>Only these two scans are vectorized; sliding and merging lines, compaction included, stays a
+ * scalar loop in {@link Grid#slide}. Grid itself counts empty cells through its index and only
+ * looks for a pair once the board is full, so the vectors do not make whole games faster: JMH
+ * random playouts on 6x6 to 10x10 grids take as long with them as without. The scans run on every
+ * step only in the solvers: spawns in Monte Carlo playouts and expectimax chance nodes.
+ */
+public final class LineKernels {
+  // Below this size a board fits in a couple of lanes and the vector setup does not pay off
+  public static final int VECTOR_MIN_SIZE = 6;
+
+  private static final Kernels VECTOR = loadVectorKernels();
+
+  // Implemented by the vector kernels, which are only loaded when their module is present
+  interface Kernels {
+    int countEmpty(byte[] cells);
+
+    boolean hasMergeablePair(byte[] cells, int size);
+  }
+
+  private LineKernels() {}
+
+  public static boolean isVectorized() {
+    return VECTOR != null;
+  }
+
+  public static int countEmpty(byte[] cells, int size) {
+    return useVector(size) ? VECTOR.countEmpty(cells) : countEmptyScalar(cells);
+  }
+
+  // Whether two equal tiles below the largest sit next to each other in a row or a column
+  public static boolean hasMergeablePair(byte[] cells, int size) {
+    return useVector(size)
+        ? VECTOR.hasMergeablePair(cells, size)
+        : hasMergeablePairScalar(cells, size);
+  }
+
+  static int countEmptyScalar(byte[] cells) {
+    int empty = 0;
+    for (byte exponent : cells) {
+      if (exponent == 0) {
+        empty++;
+      }
+    }
+    return empty;
+  }
+
+  static boolean hasMergeablePairScalar(byte[] cells, int size) {
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        int index = row * size + col;
+        byte exponent = cells[index];
+        if (exponent == 0 || exponent == Grid.MAX_EXPONENT) {
+          continue;
+        }
+        if (row < size - 1 && exponent == cells[index + size]) {
+          return true;
+        }
+        if (col < size - 1 && exponent == cells[index + 1]) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean useVector(int size) {
+    return VECTOR != null && size >= VECTOR_MIN_SIZE;
+  }
+
+  private static Kernels loadVectorKernels() {
+    if (!Boolean.parseBoolean(System.getProperty("com.boxboxjason.games._2048.vector", "true"))
+        || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+      return null;
+    }
+    try {
+      return (Kernels)
+          Class.forName("com.boxboxjason.games._2048.VectorLineKernels")
+              .getDeclaredConstructor()
+              .newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // An incomplete or unsupported vector module: stay on the scalar loops
+      return null;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package com.boxboxjason.games._2048;
+
+/**
+ * Bounded undo/redo history of a {@link Grid}, storing only the cells each move changed.
+ *
+ * <p>Entries live back to back in an int ring buffer as {@code [n, delta * n, scoreDelta, n]},
+ * each delta packing {@code index << 16 | old << 8 | new} exponents. The count at both ends lets
+ * undo walk backwards and redo walk forwards. Once the memory cap is reached the oldest entries
+ * are dropped.
+ */
+class MoveJournal {
+  @FunctionalInterface
+  interface CellWriter {
+    void write(int index, byte exponent);
+  }
+
+  // Off until a limit is set, so grids that are only played by programs record nothing
+  private int limitBytes;
+  // Allocated on first use, so grids that never record do not pay for it
+  private int[] buffer;
+  // Absolute positions in the stream of ints: oldest entry, end of the undoable entries,
+  // end of the redoable entries, and end of the entry being recorded
+  private long head;
+  private long cursor;
+  private long top;
+  private long recordEnd;
+  private boolean recording;
+  private boolean replaying;
+  private boolean overflowed;
+
+  void setLimitBytes(int limitBytes) {
+    if (limitBytes < 0) {
+      throw new IllegalArgumentException("Undo memory limit must not be negative");
+    }
+    this.limitBytes = limitBytes;
+    this.buffer = null;
+    clear();
+  }
+
+  int getLimitBytes() {
+    return limitBytes;
+  }
+
+  boolean canUndo() {
+    return cursor > head;
+  }
+
+  boolean canRedo() {
+    return top > cursor;
+  }
+
+  void clear() {
+    head = 0;
+    cursor = 0;
+    top = 0;
+  }
+
+  void begin() {
+    if (limitBytes < 4 * 4) {
+      return;
+    }
+    if (buffer == null) {
+      buffer = new int[limitBytes / 4];
+    }
+    // The redo history is only forgotten once the move is committed: a blocked move keeps it
+    recordEnd = cursor + 1;
+    recording = true;
+    overflowed = false;
+  }
+
+  // Called for every cell the grid writes: recorded inside a move, forgotten history otherwise
+  void onWrite(int index, byte oldExponent, byte newExponent) {
+    if (recording) {
+      if (overflowed || !reserve(recordEnd + 3)) {
+        overflowed = true;
+        return;
+      }
+      put(recordEnd++, index << 16 | (oldExponent & 0xFF) << 8 | (newExponent & 0xFF));
+    } else if (!replaying) {
+      clear();
+    }
+  }
+
+  void commit(int scoreDelta) {
+    if (!recording) {
+      return;
+    }
+    recording = false;
+    if (overflowed) {
+      // A single move larger than the whole cap cannot be undone
+      clear();
+      return;
+    }
+    int count = (int) (recordEnd - cursor - 1);
+    put(cursor, count);
+    put(recordEnd++, scoreDelta);
+    put(recordEnd++, count);
+    cursor = recordEnd;
+    top = recordEnd;
+  }
+
+  void abort() {
+    recording = false;
+    if (recordEnd > cursor + 1) {
+      // Cells changed without a move to undo, like any other edit
+      clear();
+    }
+  }
+
+  // Restores the cells of the last move and returns the score it had gained
+  int undo(CellWriter writer) {
+    int count = get(cursor - 1);
+    int scoreDelta = get(cursor - 2);
+    long start = cursor - count - 3;
+    replaying = true;
+    for (long position = start + count; position > start; position--) {
+      int delta = get(position);
+      writer.write(delta >>> 16, (byte) (delta >>> 8));
+    }
+    replaying = false;
+    cursor = start;
+    return scoreDelta;
+  }
+
+  // Re-applies the last undone move and returns the score it gains
+  int redo(CellWriter writer) {
+    int count = get(cursor);
+    replaying = true;
+    for (long position = cursor + 1; position <= cursor + count; position++) {
+      int delta = get(position);
+      writer.write(delta >>> 16, (byte) delta);
+    }
+    replaying = false;
+    int scoreDelta = get(cursor + count + 1);
+    cursor += count + 3;
+    return scoreDelta;
+  }
+
+  // Makes room for the stream to reach end, evicting the oldest entries; false if impossible
+  private boolean reserve(long end) {
+    while (end - head > buffer.length) {
+      if (head >= cursor) {
+        return false;
+      }
+      head += get(head) + 3;
+    }
+    return true;
+  }
+
+  private int get(long position) {
+    return buffer[(int) (position % buffer.length)];
+  }
+
+  private void put(long position, int value) {
+    buffer[(int) (position % buffer.length)] = value;
+  }
+}
@@ -0,0 +1,215 @@
+package com.boxboxjason.games._2048;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded memo of line slides for grids too large for a full lookup table, keyed by the line
+ * packed into 5 bits per cell. Random playouts keep revisiting a small working set of lines, so
+ * with the cache on most slides are one probe instead of a merge loop.
+ *
+ * <p>The cache is 4-way set-associative with CLOCK replacement inside each set. Each thread gets
+ * its own, so lookups need no synchronisation and can never see a half-written entry; hit and miss
+ * counts are folded into process-wide totals every {@link #FLUSH_INTERVAL} lookups.
+ *
+ * <p>Only the Monte Carlo playouts slide through it; {@link Grid#slide} never does, so games and
+ * searches do not pay for it. It is off unless the system property {@code
+ * com.boxboxjason.games._2048.rowCache} gives the number of entries per thread: the merge loop over
+ * at most 10 cells has proved about as cheap as packing the line and probing.
+ */
+public final class RowCache {
+  // Smaller grids are handled quickly enough by the plain merge loop
+  public static final int MIN_SIZE = 5;
+
+  private static final int WAYS = 4;
+  private static final int BITS_PER_TILE = 5;
+  private static final int TILE_MASK = (1 << BITS_PER_TILE) - 1;
+  // Largest exponent cached; lines holding a tile at the cap are left to the merge loop
+  private static final int MAX_EXPONENT = Grid.MAX_EXPONENT - 1;
+  // Room for the longest line
+  private static final int RESULT_BITS = BITS_PER_TILE * 10;
+  private static final long RESULT_MASK = (1L << RESULT_BITS) - 1;
+  private static final long EMPTY = -1L;
+  private static final int FLUSH_INTERVAL = 1024;
+  private static final int CAPACITY =
+      Integer.getInteger("com.boxboxjason.games._2048.rowCache", 0);
+
+  private static final LongAdder HITS = new LongAdder();
+  private static final LongAdder MISSES = new LongAdder();
+  private static final ThreadLocal<RowCache> LOCAL =
+      ThreadLocal.withInitial(() -> new RowCache(CAPACITY));
+
+  // Per slot, two longs: the packed line (EMPTY if unused), then the packed line after the slide
+  // with, above it, a bit for each result tile that comes from a merge. The 4 slots of a set fill
+  // one 64-byte cache line.
+  private final long[] entries;
+  // Per set: the CLOCK reference bit of each way in the low 4 bits, the hand above them
+  private final byte[] clock;
+  private final int setMask;
+  private int hits;
+  private int misses;
+
+  RowCache(int capacity) {
+    int sets = Math.max(1, Integer.highestOneBit(Math.max(capacity, WAYS) / WAYS));
+    this.entries = new long[sets * WAYS * 2];
+    this.clock = new byte[sets];
+    this.setMask = sets - 1;
+    for (int i = 0; i < entries.length; i += 2) {
+      entries[i] = EMPTY;
+    }
+  }
+
+  // This thread's cache, or null if caching is disabled
+  public static RowCache local() {
+    return CAPACITY > 0 ? LOCAL.get() : null;
+  }
+
+  // Lookups summed over all threads; a thread's latest lookups may not be counted yet
+  public static long hits() {
+    return HITS.sum();
+  }
+
+  public static long misses() {
+    return MISSES.sum();
+  }
+
+  public static void resetStats() {
+    HITS.reset();
+    MISSES.reset();
+  }
+
+  int capacity() {
+    return entries.length / 2;
+  }
+
+  /** Moves the board like {@link Grid#slide}, with the same contract, looking up each line. */
+  public int slide(byte[] src, byte[] dst, int size, Direction direction) {
+    int gain = 0;
+    boolean moved = false;
+    for (int i = 0; i < size; i++) {
+      int lineGain =
+          switch (direction) {
+            case UP -> slideLine(src, dst, size, i, size);
+            case RIGHT -> slideLine(src, dst, size, i * size + size - 1, -1);
+            case DOWN -> slideLine(src, dst, size, (size - 1) * size + i, -size);
+            case LEFT -> slideLine(src, dst, size, i * size, 1);
+          };
+      if (lineGain != Grid.NO_MOVE) {
+        gain += lineGain;
+        moved = true;
+      }
+    }
+    return moved ? gain : Grid.NO_MOVE;
+  }
+
+  /**
+   * Slides the line starting at cell index start towards it, walking away by step, with the same
+   * contract as the uncached slide: the score gained, or {@link Grid#NO_MOVE}.
+   */
+  int slideLine(byte[] src, byte[] dst, int size, int start, int step) {
+    // Packing is branch-free so that a hit costs no more mispredictions than the probe itself
+    long key = 0;
+    int overflow = 0;
+    for (int i = 0, read = start; i < size; i++, read += step) {
+      byte exponent = src[read];
+      key |= (long) exponent << (BITS_PER_TILE * i);
+      overflow |= MAX_EXPONENT - exponent;
+    }
+    // Tiles at the cap do not merge, which the packed merge does not model
+    if (overflow < 0) {
+      return Grid.slideLine(src, dst, size, start, step);
+    }
+
+    int set = (int) ((key ^ key >>> 29) * 0x9E3779B97F4A7C15L >>> 40) & setMask;
+    int base = set * WAYS * 2;
+    int slot = -1;
+    for (int way = 0; way < WAYS; way++) {
+      if (entries[base + 2 * way] == key) {
+        slot = base + 2 * way;
+        clock[set] |= (byte) (1 << way);
+        break;
+      }
+    }
+    long entry;
+    if (slot >= 0) {
+      countLookup(true);
+      entry = entries[slot + 1];
+    } else {
+      countLookup(false);
+      slot = base + 2 * victim(set);
+      entry = merge(key, size);
+      entries[slot] = key;
+      entries[slot + 1] = entry;
+    }
+    long result = entry & RESULT_MASK;
+    if (result == key && src == dst) {
+      return Grid.NO_MOVE;
+    }
+    for (int i = 0, cell = start; i < size; i++, cell += step) {
+      dst[cell] = (byte) (result >>> (BITS_PER_TILE * i) & TILE_MASK);
+    }
+    if (result == key) {
+      return Grid.NO_MOVE;
+    }
+    int gain = 0;
+    for (long merged = entry >>> RESULT_BITS; merged != 0; merged &= merged - 1) {
+      int tile = Long.numberOfTrailingZeros(merged);
+      gain += 1 << (result >>> (BITS_PER_TILE * tile) & TILE_MASK);
+    }
+    return gain;
+  }
+
+  // Slides the packed line like Grid.slideLine, returning the entry to store
+  private static long merge(long key, int size) {
+    long result = 0;
+    long merged = 0;
+    int written = 0;
+    long pending = 0;
+    for (int i = 0; i < size; i++) {
+      long exponent = key >>> (BITS_PER_TILE * i) & TILE_MASK;
+      if (exponent == 0) {
+        continue;
+      }
+      if (pending == 0) {
+        pending = exponent;
+        continue;
+      }
+      if (pending == exponent) {
+        merged |= 1L << written;
+        result |= (pending + 1) << (BITS_PER_TILE * written++);
+        pending = 0;
+      } else {
+        result |= pending << (BITS_PER_TILE * written++);
+        pending = exponent;
+      }
+    }
+    result |= pending << (BITS_PER_TILE * written);
+    return merged << RESULT_BITS | result;
+  }
+
+  // Picks the way to replace in a set: the first one the hand finds without its reference bit
+  private int victim(int set) {
+    int bits = clock[set] & 0xF;
+    int hand = clock[set] >>> 4 & 0x3;
+    while ((bits & 1 << hand) != 0) {
+      bits &= ~(1 << hand);
+      hand = (hand + 1) & (WAYS - 1);
+    }
+    clock[set] = (byte) ((hand + 1 & (WAYS - 1)) << 4 | bits | 1 << hand);
+    return hand;
+  }
+
+  private void countLookup(boolean hit) {
+    if (hit) {
+      hits++;
+    } else {
+      misses++;
+    }
+    if (hits + misses == FLUSH_INTERVAL) {
+      HITS.add(hits);
+      MISSES.add(misses);
+      hits = 0;
+      misses = 0;
+    }
+  }
+}
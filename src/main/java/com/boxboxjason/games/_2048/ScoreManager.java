@@ -1,19 +1,57 @@
 package com.boxboxjason.games._2048;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
 import com.google.gson.reflect.TypeToken;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the top 10 scores, in memory and in a JSON file.
+ *
+ * <p>Scores change in memory at once, but the file is written behind, on a background thread, so
+ * that the caller (the JavaFX thread in the game) never waits on the disk. Scores added while a
+ * write is queued or running are coalesced into the next one, which always writes the latest list.
+ * Each write goes to a temporary file that is then moved over the score file, so the file always
+ * holds a whole list, old or new, with the permissions the old one had. {@link #close()} writes
+ * what is still pending; a score is either added before it, and written, or refused.
+ */
+public class ScoreManager implements AutoCloseable {
+  private static final System.Logger LOGGER = System.getLogger(ScoreManager.class.getName());
 
-public class ScoreManager {
   private List<Score> scores;
   private Gson gson;
   private String filePath;
+  // Set under the lock that addScore holds, so that no score slips in once closing has begun
+  private boolean closed;
+  // Latest list not written yet, null once the writer has taken it
+  private final AtomicReference<List<Score>> pending = new AtomicReference<>();
+  private final ExecutorService writer =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "score-writer");
+            thread.setDaemon(true);
+            return thread;
+          });
 
   public ScoreManager() {
     // Use cross-platform user data directory
@@ -50,15 +88,63 @@ public class ScoreManager {
     scores.sort((a, b) -> Integer.compare(b.getScore(), a.getScore()));
   }
 
+  // Hands the current list to the writer, queueing a write unless one is already waiting for it
   private void saveScores() {
-    try (FileWriter writer = new FileWriter(filePath)) {
-      gson.toJson(scores, writer);
-    } catch (IOException e) {
-      e.printStackTrace();
+    if (pending.getAndSet(List.copyOf(scores)) == null) {
+      writer.execute(this::writePending);
+    }
+  }
+
+  private void writePending() {
+    List<Score> snapshot = pending.getAndSet(null);
+    if (snapshot == null) {
+      return;
+    }
+    Path target = Path.of(filePath).toAbsolutePath();
+    Path temporary = null;
+    try {
+      temporary = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+      copyPermissions(target, temporary);
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+          Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8)) {
+        gson.toJson(snapshot, out);
+        out.flush();
+        channel.force(true);
+      }
+      try {
+        Files.move(
+            temporary,
+            target,
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException | JsonIOException e) {
+      LOGGER.log(System.Logger.Level.WARNING, "Cannot save the scores to " + target, e);
+      if (temporary != null) {
+        try {
+          Files.deleteIfExists(temporary);
+        } catch (IOException cleanup) {
+          e.addSuppressed(cleanup);
+        }
+      }
     }
   }
 
-  public void addScore(Score score) {
+  // Keeps the permissions of the file being replaced where they are POSIX ones; a first file stays
+  // readable by its owner only, as created
+  private static void copyPermissions(Path from, Path to) throws IOException {
+    PosixFileAttributeView view = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+    if (view != null && Files.exists(from)) {
+      Files.setPosixFilePermissions(to, view.readAttributes().permissions());
+    }
+  }
+
+  public synchronized void addScore(Score score) {
+    if (closed) {
+      throw new IllegalStateException("The score manager is closed");
+    }
     scores.add(score);
     scores.sort((a, b) -> Integer.compare(b.getScore(), a.getScore()));
     if (scores.size() > 10) {
@@ -67,6 +153,30 @@ public class ScoreManager {
     saveScores();
   }
 
+  /** Waits until every score added so far is in the file, or failed to be written. */
+  public void flush() {
+    if (writer.isShutdown()) {
+      return;
+    }
+    try {
+      writer.submit(this::writePending).get();
+    } catch (RejectedExecutionException e) {
+      // Closed meanwhile, which wrote everything
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Score writer failed", e.getCause());
+    }
+  }
+
+  // Writes what is pending and stops the writer; later scores are refused
+  @Override
+  public synchronized void close() {
+    closed = true;
+    flush();
+    writer.shutdown();
+  }
+
   public List<Score> getTopScores() {
     return new ArrayList<>(scores);
   }
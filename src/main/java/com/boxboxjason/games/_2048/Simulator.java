@@ -0,0 +1,408 @@
+package com.boxboxjason.games._2048;
+
+import com.boxboxjason.games._2048.learning.NTupleNetwork;
+import com.boxboxjason.games._2048.learning.NTupleStrategy;
+import com.boxboxjason.games._2048.solver.CornerStrategy;
+import com.boxboxjason.games._2048.solver.ExactPolicy;
+import com.boxboxjason.games._2048.solver.GreedyStrategy;
+import com.boxboxjason.games._2048.solver.MonteCarloStrategy;
+import com.boxboxjason.games._2048.solver.RandomStrategy;
+import com.boxboxjason.games._2048.solver.Strategy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
+/**
+ * Headless batch runner: plays many games of one strategy across worker threads and reports
+ * throughput and the distributions of score, max tile and game length. Never touches JavaFX.
+ *
+ * <p>Each worker plays a fixed share of the games with its own {@link SplittableRandom#split()}
+ * stream and its own strategy instance, so for a given seed and thread count the report does not
+ * depend on the scheduling.
+ *
+ * <pre>
+ * java -cp 2048.jar com.boxboxjason.games._2048.Simulator \
+ *     --strategy corner --games 1000000 --threads 8 --size 4 --seed 1
+ * </pre>
+ */
+public class Simulator {
+  private static final String USAGE =
+      "Usage: Simulator [--strategy random|greedy|corner|exact:<policy file>"
+          + "|ntuple:<network file>|montecarlo:<playouts per move>|<class name>] [--games N]"
+          + " [--threads N] [--size N] [--seed N]";
+  private static final String EXACT_PREFIX = "exact:";
+  private static final String NTUPLE_PREFIX = "ntuple:";
+  private static final String MONTE_CARLO_PREFIX = "montecarlo:";
+
+  private final int size;
+  private final int threads;
+  private final Function<RandomGenerator, Strategy> strategies;
+
+  /**
+   * @param strategies creates one strategy per worker, given a random stream it may use
+   */
+  public Simulator(int size, int threads, Function<RandomGenerator, Strategy> strategies) {
+    if (size < 2 || size > 10) {
+      throw new IllegalArgumentException("Grid size must be between 2 and 10");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("At least one worker thread is required");
+    }
+    this.size = size;
+    this.threads = threads;
+    this.strategies = strategies;
+  }
+
+  public Report run(long games, long seed) {
+    if (games < 1) {
+      throw new IllegalArgumentException("At least one game is required");
+    }
+    long start = System.nanoTime();
+    SplittableRandom random = new SplittableRandom(seed);
+    List<Callable<Report>> workers = new ArrayList<>();
+    for (int worker = 0; worker < threads; worker++) {
+      long share = games / threads + (worker < games % threads ? 1 : 0);
+      SplittableRandom stream = random.split();
+      if (share > 0) {
+        workers.add(() -> play(share, stream));
+      }
+    }
+    Report total = new Report();
+    try (ExecutorService executor = Executors.newFixedThreadPool(workers.size())) {
+      for (Future<Report> result : executor.invokeAll(workers)) {
+        total.merge(result.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Simulation was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Simulation worker failed", e.getCause());
+    }
+    total.nanos = System.nanoTime() - start;
+    return total;
+  }
+
+  private Report play(long games, SplittableRandom random) {
+    Report report = new Report();
+    Strategy strategy = strategies.apply(random.split());
+    Grid grid = new Grid(size, random);
+    for (long game = 0; game < games; game++) {
+      if (game > 0) {
+        grid.reinit(size);
+      }
+      long moves = 0;
+      Direction direction;
+      while ((direction = strategy.chooseMove(grid)) != null) {
+        grid.moveAndAddTile(direction);
+        moves++;
+      }
+      int maxExponent = 0;
+      for (int row = 0; row < size; row++) {
+        for (int col = 0; col < size; col++) {
+          maxExponent = Math.max(maxExponent, grid.getExponent(row, col));
+        }
+      }
+      report.add(grid.getScore(), moves, maxExponent);
+    }
+    return report;
+  }
+
+  public static void main(String[] args) {
+    String strategy = "corner";
+    long games = 10_000;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int size = 4;
+    long seed = System.nanoTime();
+    try {
+      for (int i = 0; i < args.length; i += 2) {
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("Missing value for " + args[i]);
+        }
+        String value = args[i + 1];
+        switch (args[i]) {
+          case "--strategy" -> strategy = value;
+          case "--games" -> games = Long.parseLong(value);
+          case "--threads" -> threads = Integer.parseInt(value);
+          case "--size" -> size = Integer.parseInt(value);
+          case "--seed" -> seed = Long.parseLong(value);
+          default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+      Simulator simulator = new Simulator(size, threads, strategyFactory(strategy));
+      System.out.printf(
+          Locale.ROOT,
+          "Playing %d games of %s on a %dx%d grid with %d threads (seed %d)%n",
+          games,
+          strategy,
+          size,
+          size,
+          threads,
+          seed);
+      System.out.print(simulator.run(games, seed).format());
+      long lookups = RowCache.hits() + RowCache.misses();
+      if (lookups > 0) {
+        System.out.printf(
+            Locale.ROOT,
+            "Row cache: %.1f%% hits over %d lookups%n",
+            100.0 * RowCache.hits() / lookups,
+            lookups);
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+  }
+
+  /**
+   * Resolves a built-in strategy name, {@code exact:} followed by a file written by {@link
+   * com.boxboxjason.games._2048.solver.ExactSolver}, {@code ntuple:} followed by a network written
+   * by {@link com.boxboxjason.games._2048.learning.TdTrainer}, {@code montecarlo:} followed by the
+   * number of playouts per move, or else the name of a {@link Strategy} class with a public
+   * no-argument constructor.
+   */
+  public static Function<RandomGenerator, Strategy> strategyFactory(String name) {
+    if (name.startsWith(MONTE_CARLO_PREFIX)) {
+      int playouts = Integer.parseInt(name.substring(MONTE_CARLO_PREFIX.length()));
+      // The workers already fill the cores, so each one plays its playouts itself
+      return random ->
+          new MonteCarloStrategy(
+              playouts, new SplittableRandom(random.nextLong()), new ForkJoinPool(1));
+    }
+    if (name.startsWith(EXACT_PREFIX)) {
+      Path file = Path.of(name.substring(EXACT_PREFIX.length()));
+      try {
+        // Read-only, so all the workers share one mapping
+        ExactPolicy policy = ExactPolicy.load(file);
+        return random -> policy;
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Cannot load exact policy " + file, e);
+      }
+    }
+    if (name.startsWith(NTUPLE_PREFIX)) {
+      Path file = Path.of(name.substring(NTUPLE_PREFIX.length()));
+      try {
+        // Playing only reads the network, so the workers share it too
+        NTupleStrategy strategy = new NTupleStrategy(NTupleNetwork.load(file));
+        return random -> strategy;
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Cannot load n-tuple network " + file, e);
+      }
+    }
+    return switch (name.toLowerCase(Locale.ROOT)) {
+      case "random" -> RandomStrategy::new;
+      case "greedy" -> random -> new GreedyStrategy();
+      case "corner" -> random -> new CornerStrategy();
+      default -> {
+        Class<? extends Strategy> type;
+        try {
+          type = Class.forName(name).asSubclass(Strategy.class);
+          type.getConstructor();
+        } catch (ClassNotFoundException | ClassCastException | NoSuchMethodException e) {
+          throw new IllegalArgumentException("Unknown strategy " + name, e);
+        }
+        yield random -> {
+          try {
+            return type.getConstructor().newInstance();
+          } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate strategy " + name, e);
+          }
+        };
+      }
+    };
+  }
+
+  /** Aggregated results of a simulation run. */
+  public static final class Report {
+    private final Distribution scores = new Distribution();
+    private final Distribution lengths = new Distribution();
+    // maxTiles[exponent]: number of games whose largest tile was 2^exponent
+    private final long[] maxTiles = new long[64];
+    private long nanos;
+
+    private void add(int score, long moves, int maxExponent) {
+      scores.add(score);
+      lengths.add(moves);
+      maxTiles[maxExponent]++;
+    }
+
+    private void merge(Report other) {
+      scores.merge(other.scores);
+      lengths.merge(other.lengths);
+      for (int exponent = 0; exponent < maxTiles.length; exponent++) {
+        maxTiles[exponent] += other.maxTiles[exponent];
+      }
+    }
+
+    public long getGames() {
+      return scores.getCount();
+    }
+
+    public long getMoves() {
+      return lengths.getSum();
+    }
+
+    public double getSeconds() {
+      return nanos / 1e9;
+    }
+
+    public double getGamesPerSecond() {
+      return nanos == 0 ? 0.0 : getGames() * 1e9 / nanos;
+    }
+
+    public double getMovesPerSecond() {
+      return nanos == 0 ? 0.0 : getMoves() * 1e9 / nanos;
+    }
+
+    public Distribution getScores() {
+      return scores;
+    }
+
+    public Distribution getLengths() {
+      return lengths;
+    }
+
+    // Number of games whose largest tile was 2^exponent
+    public long getMaxTileCount(int exponent) {
+      return maxTiles[exponent];
+    }
+
+    public String format() {
+      StringBuilder text = new StringBuilder();
+      text.append(
+          String.format(
+              Locale.ROOT,
+              "%d games, %d moves in %.2f s: %.1f games/s, %.1f moves/s%n",
+              getGames(),
+              getMoves(),
+              getSeconds(),
+              getGamesPerSecond(),
+              getMovesPerSecond()));
+      text.append("Score:  ").append(scores).append(System.lineSeparator());
+      text.append("Length: ").append(lengths).append(System.lineSeparator());
+      text.append("Max tile:").append(System.lineSeparator());
+      for (int exponent = 0; exponent < maxTiles.length; exponent++) {
+        if (maxTiles[exponent] > 0) {
+          text.append(
+              String.format(
+                  Locale.ROOT,
+                  "  %8d  %6.2f%%  (%d)%n",
+                  1L << exponent,
+                  100.0 * maxTiles[exponent] / getGames(),
+                  maxTiles[exponent]));
+        }
+      }
+      return text.toString();
+    }
+  }
+
+  /**
+   * Log-linear histogram of non-negative values: exact below 8, then 8 buckets per power of two,
+   * so percentiles are within 12.5% while millions of samples take a few hundred counters.
+   */
+  public static final class Distribution {
+    private static final int SUB_BUCKETS = 8;
+
+    // Long.MAX_VALUE, in octave 62, lands in the last bucket
+    private final long[] counts = new long[SUB_BUCKETS * 61];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public void add(long value) {
+      counts[bucket(value)]++;
+      count++;
+      sum += value;
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+
+    public void merge(Distribution other) {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += other.counts[i];
+      }
+      count += other.count;
+      sum += other.sum;
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getSum() {
+      return sum;
+    }
+
+    public long getMin() {
+      return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+      return count == 0 ? 0 : max;
+    }
+
+    public double getMean() {
+      return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    // Lower bound of the bucket holding the given quantile, clamped to the observed range
+    public long percentile(double quantile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(quantile * count);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= Math.max(rank, 1)) {
+          return Math.clamp(lowerBound(i), getMin(), getMax());
+        }
+      }
+      return getMax();
+    }
+
+    static int bucket(long value) {
+      if (value < SUB_BUCKETS) {
+        return (int) value;
+      }
+      int octave = 63 - Long.numberOfLeadingZeros(value);
+      int sub = (int) (value >>> (octave - 3)) & (SUB_BUCKETS - 1);
+      return (octave - 2) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int bucket) {
+      if (bucket < SUB_BUCKETS) {
+        return bucket;
+      }
+      int octave = bucket / SUB_BUCKETS + 2;
+      return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (octave - 3);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          Locale.ROOT,
+          "mean %.1f, min %d, p50 %d, p90 %d, p99 %d, max %d",
+          getMean(),
+          getMin(),
+          percentile(0.5),
+          percentile(0.9),
+          percentile(0.99),
+          getMax());
+    }
+  }
+}
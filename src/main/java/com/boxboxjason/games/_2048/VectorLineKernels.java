@@ -0,0 +1,79 @@
+package com.boxboxjason.games._2048;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the {@link LineKernels} scans. Each step compares a whole vector of cells with
+ * the vector of their right (or lower) neighbours; lanes pairing the last cell of a row with the
+ * first of the next one are masked out. Only loaded reflectively, when the module is present.
+ */
+final class VectorLineKernels implements LineKernels.Kernels {
+  // 16 lanes: wider vectors leave most of a 6x6 to 10x10 board to the scalar tail
+  private static final VectorSpecies<Byte> SPECIES =
+      ByteVector.SPECIES_PREFERRED.vectorBitSize() >= 128
+          ? ByteVector.SPECIES_128
+          : ByteVector.SPECIES_PREFERRED;
+  private static final int MAX_SIZE = 10;
+
+  // HAS_RIGHT_NEIGHBOUR[size][index]: whether the cell is not in the last column
+  private static final boolean[][] HAS_RIGHT_NEIGHBOUR = new boolean[MAX_SIZE + 1][];
+
+  static {
+    for (int size = 1; size <= MAX_SIZE; size++) {
+      boolean[] mask = new boolean[size * size];
+      for (int index = 0; index < mask.length; index++) {
+        mask[index] = index % size != size - 1;
+      }
+      HAS_RIGHT_NEIGHBOUR[size] = mask;
+    }
+  }
+
+  @Override
+  public int countEmpty(byte[] cells) {
+    int empty = 0;
+    int index = 0;
+    for (int bound = SPECIES.loopBound(cells.length); index < bound; index += SPECIES.length()) {
+      empty += ByteVector.fromArray(SPECIES, cells, index).eq((byte) 0).trueCount();
+    }
+    for (; index < cells.length; index++) {
+      if (cells[index] == 0) {
+        empty++;
+      }
+    }
+    return empty;
+  }
+
+  @Override
+  public boolean hasMergeablePair(byte[] cells, int size) {
+    return anyPair(cells, size, 1, true) || anyPair(cells, size, size, false);
+  }
+
+  // Whether some tile below the largest equals its neighbour at +offset
+  private static boolean anyPair(byte[] cells, int size, int offset, boolean horizontal) {
+    int pairs = cells.length - offset;
+    int index = 0;
+    for (; index + SPECIES.length() <= pairs; index += SPECIES.length()) {
+      ByteVector first = ByteVector.fromArray(SPECIES, cells, index);
+      ByteVector second = ByteVector.fromArray(SPECIES, cells, index + offset);
+      VectorMask<Byte> mergeable =
+          first.eq(second).andNot(first.eq((byte) 0)).andNot(first.eq((byte) Grid.MAX_EXPONENT));
+      if (horizontal) {
+        mergeable = mergeable.and(VectorMask.fromArray(SPECIES, HAS_RIGHT_NEIGHBOUR[size], index));
+      }
+      if (mergeable.anyTrue()) {
+        return true;
+      }
+    }
+    for (; index < pairs; index++) {
+      if ((!horizontal || index % size != size - 1)
+          && cells[index] != 0
+          && cells[index] != Grid.MAX_EXPONENT
+          && cells[index] == cells[index + offset]) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
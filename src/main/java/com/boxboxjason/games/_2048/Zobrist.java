@@ -0,0 +1,95 @@
+package com.boxboxjason.games._2048;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing of exponent boards: the hash is the XOR of one random key per (cell, exponent),
+ * so a single cell change updates it with two XORs.
+ */
+public final class Zobrist {
+  public static final int SYMMETRIES = 8;
+
+  private static final int MAX_SIZE = 10;
+  private static final int EXPONENTS = 64;
+  // Fixed seed: hashes must stay stable across runs for anything persisted or compared
+  private static final long SEED = 0x2048_2048_2048_2048L;
+
+  // KEYS[cell * EXPONENTS + exponent], exponent 0 (empty) hashing to 0
+  private static final long[] KEYS = new long[MAX_SIZE * MAX_SIZE * EXPONENTS];
+  // Distinguishes boards of different sizes that would otherwise share their first cells
+  private static final long[] SIZE_KEYS = new long[MAX_SIZE + 1];
+  // PERMUTATIONS[size][symmetry][cell]: where a cell lands under each rotation or reflection
+  private static final int[][][] PERMUTATIONS = new int[MAX_SIZE + 1][][];
+
+  static {
+    SplittableRandom random = new SplittableRandom(SEED);
+    for (int i = 0; i < KEYS.length; i++) {
+      KEYS[i] = i % EXPONENTS == 0 ? 0L : random.nextLong();
+    }
+    for (int size = 0; size <= MAX_SIZE; size++) {
+      SIZE_KEYS[size] = random.nextLong();
+    }
+    for (int size = 2; size <= MAX_SIZE; size++) {
+      PERMUTATIONS[size] = symmetries(size);
+    }
+  }
+
+  private Zobrist() {}
+
+  public static long key(int cell, byte exponent) {
+    return KEYS[cell * EXPONENTS + (exponent & (EXPONENTS - 1))];
+  }
+
+  public static long emptyHash(int size) {
+    return SIZE_KEYS[size];
+  }
+
+  public static long hash(byte[] cells, int size) {
+    long hash = SIZE_KEYS[size];
+    for (int i = 0; i < cells.length; i++) {
+      hash ^= key(i, cells[i]);
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the smallest hash among the 8 rotations and reflections of the board, so symmetric
+   * positions share the same key.
+   */
+  public static long canonicalHash(byte[] cells, int size) {
+    int[][] permutations = PERMUTATIONS[size];
+    long best = Long.MAX_VALUE;
+    for (int[] permutation : permutations) {
+      long hash = SIZE_KEYS[size];
+      for (int i = 0; i < cells.length; i++) {
+        hash ^= key(permutation[i], cells[i]);
+      }
+      best = Math.min(best, hash);
+    }
+    return best;
+  }
+
+  // Index of cell in the board obtained by applying the given symmetry (0 being the identity)
+  public static int transform(int symmetry, int cell, int size) {
+    return PERMUTATIONS[size][symmetry][cell];
+  }
+
+  private static int[][] symmetries(int size) {
+    int last = size - 1;
+    int[][] permutations = new int[SYMMETRIES][size * size];
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        int cell = row * size + col;
+        permutations[0][cell] = cell;
+        permutations[1][cell] = col * size + (last - row); // rotate 90
+        permutations[2][cell] = (last - row) * size + (last - col); // rotate 180
+        permutations[3][cell] = (last - col) * size + row; // rotate 270
+        permutations[4][cell] = row * size + (last - col); // mirror left-right
+        permutations[5][cell] = (last - row) * size + col; // mirror top-bottom
+        permutations[6][cell] = col * size + row; // transpose
+        permutations[7][cell] = (last - col) * size + (last - row); // anti-transpose
+      }
+    }
+    return permutations;
+  }
+}
@@ -0,0 +1,243 @@
+package com.boxboxjason.games._2048.learning;
+
+import com.boxboxjason.games._2048.BitBoard;
+import com.boxboxjason.games._2048.Zobrist;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * N-tuple value network over packed 4x4 {@link BitBoard} positions.
+ *
+ * <p>Each tuple is a list of cells whose exponents index one large float table; the value of a
+ * board is the sum of the entries selected by every tuple under the 8 rotations and reflections of
+ * the board. Tables are heap float[] arrays for a freshly created network and memory-mapped file
+ * regions for a loaded one, so loading costs no copy.
+ *
+ * <p>Updates are lock-free and unsynchronised: concurrent self-play workers may race on the same
+ * entry and lose an update now and then, which stochastic gradient descent tolerates.
+ */
+public class NTupleNetwork {
+  // The 4 x 6-tuple layout of strong 2048 TD players
+  public static final int[][] STANDARD_TUPLES = {
+    {0, 1, 2, 3, 4, 5}, {4, 5, 6, 7, 8, 9}, {0, 1, 2, 4, 5, 6}, {4, 5, 6, 8, 9, 10}
+  };
+  // A light layout (5 x 4-tuples, 1 MB of weights), quick to train
+  public static final int[][] SMALL_TUPLES = {
+    {0, 1, 2, 3}, {4, 5, 6, 7}, {0, 1, 4, 5}, {1, 2, 5, 6}, {5, 6, 9, 10}
+  };
+
+  private static final int MAGIC = 0x4E54_4E31; // "NTN1"
+  private static final int CELLS = BitBoard.SIZE * BitBoard.SIZE;
+  // 16^7 floats (1 GB) per table is already far past anything worth training
+  private static final int MAX_TUPLE_LENGTH = 7;
+
+  private final int[][] tuples;
+  // shifts[tuple][symmetry][i]: bit offset in the packed board of the i-th cell of the tuple
+  private final int[][][] shifts;
+  private final FloatBuffer[] tables;
+
+  public NTupleNetwork(int[][] tuples) {
+    this(tuples, heapTables(tuples));
+  }
+
+  private NTupleNetwork(int[][] tuples, FloatBuffer[] tables) {
+    this.tuples = new int[tuples.length][];
+    this.shifts = new int[tuples.length][Zobrist.SYMMETRIES][];
+    for (int t = 0; t < tuples.length; t++) {
+      this.tuples[t] = tuples[t].clone();
+      for (int symmetry = 0; symmetry < Zobrist.SYMMETRIES; symmetry++) {
+        int[] tupleShifts = new int[tuples[t].length];
+        for (int i = 0; i < tupleShifts.length; i++) {
+          tupleShifts[i] = 4 * Zobrist.transform(symmetry, tuples[t][i], BitBoard.SIZE);
+        }
+        shifts[t][symmetry] = tupleShifts;
+      }
+    }
+    this.tables = tables;
+  }
+
+  public double value(long board) {
+    double value = 0.0;
+    for (int t = 0; t < tables.length; t++) {
+      FloatBuffer table = tables[t];
+      for (int[] tupleShifts : shifts[t]) {
+        value += table.get(index(board, tupleShifts));
+      }
+    }
+    return value;
+  }
+
+  // Adds delta to every entry the board selects
+  public void update(long board, float delta) {
+    for (int t = 0; t < tables.length; t++) {
+      FloatBuffer table = tables[t];
+      for (int[] tupleShifts : shifts[t]) {
+        int index = index(board, tupleShifts);
+        table.put(index, table.get(index) + delta);
+      }
+    }
+  }
+
+  // Number of table entries a board selects, i.e. how many weights one update touches
+  public int features() {
+    return tables.length * Zobrist.SYMMETRIES;
+  }
+
+  public int[][] getTuples() {
+    int[][] copy = new int[tuples.length][];
+    for (int t = 0; t < tuples.length; t++) {
+      copy[t] = tuples[t].clone();
+    }
+    return copy;
+  }
+
+  /**
+   * Writes the network as a little-endian header ({@code magic, tuple count, then each tuple
+   * length and cells}) followed by the tables, so {@link #load(Path)} can map them in place.
+   */
+  public void save(Path path) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.allocate(headerBytes(tuples)).order(ByteOrder.LITTLE_ENDIAN);
+      header.putInt(MAGIC).putInt(tuples.length);
+      for (int[] tuple : tuples) {
+        header.putInt(tuple.length);
+        for (int cell : tuple) {
+          header.putInt(cell);
+        }
+      }
+      header.flip();
+      writeFully(channel, header);
+
+      ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+      for (FloatBuffer table : tables) {
+        for (int i = 0; i < table.capacity(); i++) {
+          if (!chunk.hasRemaining()) {
+            chunk.flip();
+            writeFully(channel, chunk);
+            chunk.clear();
+          }
+          chunk.putFloat(table.get(i));
+        }
+      }
+      chunk.flip();
+      writeFully(channel, chunk);
+    }
+  }
+
+  /**
+   * Maps a network written by {@link #save(Path)}. The tables stay in the page cache and are read
+   * lazily; updates go to private copy-on-write pages and never reach the file. A network loaded
+   * from a read-only file can be played but not trained.
+   */
+  public static NTupleNetwork load(Path path) throws IOException {
+    // Private mappings need a channel opened for writing, even though nothing is written back
+    boolean writable = Files.isWritable(path);
+    FileChannel.MapMode mode =
+        writable ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY;
+    try (FileChannel channel =
+        writable
+            ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+            : FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer prefix = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+      channel.read(prefix, 0);
+      prefix.flip();
+      if (prefix.remaining() < 8 || prefix.getInt() != MAGIC) {
+        throw new IOException("Not an n-tuple network file: " + path);
+      }
+      int count = prefix.getInt();
+      if (count < 1 || count > 64) {
+        throw new IOException("Invalid tuple count " + count + " in " + path);
+      }
+      // Tuple descriptors are at most 1 + MAX_TUPLE_LENGTH ints each
+      ByteBuffer header = ByteBuffer.allocate(4 * count * (1 + MAX_TUPLE_LENGTH));
+      channel.read(header, 8);
+      header.flip().order(ByteOrder.LITTLE_ENDIAN);
+      int[][] tuples = new int[count][];
+      for (int t = 0; t < count; t++) {
+        if (header.remaining() < 4) {
+          throw new IOException("Truncated n-tuple network file: " + path);
+        }
+        int length = header.getInt();
+        if (length < 1 || length > MAX_TUPLE_LENGTH || header.remaining() < 4 * length) {
+          throw new IOException("Invalid tuple length " + length + " in " + path);
+        }
+        tuples[t] = new int[length];
+        for (int i = 0; i < length; i++) {
+          tuples[t][i] = header.getInt();
+          if (tuples[t][i] < 0 || tuples[t][i] >= CELLS) {
+            throw new IOException("Invalid tuple cell " + tuples[t][i] + " in " + path);
+          }
+        }
+      }
+
+      long offset = headerBytes(tuples);
+      FloatBuffer[] tables = new FloatBuffer[count];
+      for (int t = 0; t < count; t++) {
+        long bytes = 4L * tableSize(tuples[t]);
+        if (offset + bytes > channel.size()) {
+          throw new IOException("Truncated n-tuple network file: " + path);
+        }
+        tables[t] =
+            channel
+                .map(mode, offset, bytes)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+        offset += bytes;
+      }
+      return new NTupleNetwork(tuples, tables);
+    }
+  }
+
+  private static int index(long board, int[] tupleShifts) {
+    int index = 0;
+    for (int i = 0; i < tupleShifts.length; i++) {
+      index |= (int) ((board >>> tupleShifts[i]) & 0xF) << (4 * i);
+    }
+    return index;
+  }
+
+  private static FloatBuffer[] heapTables(int[][] tuples) {
+    FloatBuffer[] tables = new FloatBuffer[tuples.length];
+    for (int t = 0; t < tuples.length; t++) {
+      if (tuples[t].length < 1 || tuples[t].length > MAX_TUPLE_LENGTH) {
+        throw new IllegalArgumentException("Tuples must have between 1 and 7 cells");
+      }
+      for (int cell : tuples[t]) {
+        if (cell < 0 || cell >= CELLS) {
+          throw new IllegalArgumentException("Invalid tuple cell: " + cell);
+        }
+      }
+      tables[t] = FloatBuffer.wrap(new float[tableSize(tuples[t])]);
+    }
+    return tables;
+  }
+
+  private static int tableSize(int[] tuple) {
+    return 1 << (4 * tuple.length);
+  }
+
+  private static int headerBytes(int[][] tuples) {
+    int ints = 2;
+    for (int[] tuple : tuples) {
+      ints += 1 + tuple.length;
+    }
+    return 4 * ints;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.boxboxjason.games._2048.learning;
+
+import com.boxboxjason.games._2048.BitBoard;
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import com.boxboxjason.games._2048.solver.Strategy;
+
+/** Plays the move maximising {@code reward + V(afterstate)} under a trained network, 4x4 only. */
+public class NTupleStrategy implements Strategy {
+  private final NTupleNetwork network;
+
+  public NTupleStrategy(NTupleNetwork network) {
+    this.network = network;
+  }
+
+  @Override
+  public Direction chooseMove(Grid grid) {
+    if (grid.getSize() != BitBoard.SIZE) {
+      throw new IllegalArgumentException("N-tuple networks only play on a 4x4 grid");
+    }
+    byte[] cells = new byte[BitBoard.SIZE * BitBoard.SIZE];
+    grid.copyCells(cells);
+    return chooseMove(BitBoard.fromExponents(cells));
+  }
+
+  public Direction chooseMove(long board) {
+    return Strategy.best(evaluateMoves(board));
+  }
+
+  // Value of each direction, indexed by ordinal, NaN marking the directions in which nothing moves
+  public double[] evaluateMoves(long board) {
+    double[] values = new double[Direction.values().length];
+    for (Direction direction : Direction.values()) {
+      long after = BitBoard.move(board, direction);
+      values[direction.ordinal()] =
+          after == board ? Double.NaN : BitBoard.score(board, direction) + network.value(after);
+    }
+    return values;
+  }
+}
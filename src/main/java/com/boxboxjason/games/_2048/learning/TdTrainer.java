@@ -0,0 +1,221 @@
+package com.boxboxjason.games._2048.learning;
+
+import com.boxboxjason.games._2048.BitBoard;
+import com.boxboxjason.games._2048.Direction;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Trains an {@link NTupleNetwork} by TD(0) self-play on afterstates (the board right after a move,
+ * before the tile spawns).
+ *
+ * <p>Each game greedily plays the move maximising {@code reward + V(afterstate)} and moves the
+ * value of the previous afterstate towards {@code reward + V(next afterstate)}, or towards 0 when
+ * the game is lost. Workers play whole games in parallel against the same network, each with its
+ * own {@link SplittableRandom#split()} stream.
+ *
+ * <p>From the command line it trains a new network and saves it, for the simulator's {@code
+ * ntuple:} strategy:
+ *
+ * <pre>
+ * java -cp 2048.jar com.boxboxjason.games._2048.learning.TdTrainer \
+ *     --games 100000 --output ntuple.bin --tuples standard --threads 8
+ * </pre>
+ */
+public class TdTrainer {
+  public static final float DEFAULT_LEARNING_RATE = 0.1f;
+
+  private static final String USAGE =
+      "Usage: TdTrainer --games N --output FILE [--tuples standard|small] [--learning-rate X]"
+          + " [--threads N] [--seed N]";
+
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  private final NTupleNetwork network;
+  // Spread across the entries one update touches, so the value moves by learningRate * error
+  private final float stepSize;
+
+  public TdTrainer(NTupleNetwork network) {
+    this(network, DEFAULT_LEARNING_RATE);
+  }
+
+  public TdTrainer(NTupleNetwork network, float learningRate) {
+    if (!(learningRate > 0)) {
+      throw new IllegalArgumentException("Learning rate must be positive");
+    }
+    this.network = network;
+    this.stepSize = learningRate / network.features();
+  }
+
+  public NTupleNetwork getNetwork() {
+    return network;
+  }
+
+  /** Result of a training run. */
+  public record Stats(
+      int games, long moves, double meanScore, int maxExponent, double gamesPerSecond) {}
+
+  public Stats train(int games, int threads, long seed) {
+    if (games < 1 || threads < 1) {
+      throw new IllegalArgumentException("At least one game and one thread are required");
+    }
+    long start = System.nanoTime();
+    AtomicInteger remaining = new AtomicInteger(games);
+    SplittableRandom random = new SplittableRandom(seed);
+    List<Callable<long[]>> workers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      SplittableRandom stream = random.split();
+      workers.add(() -> work(remaining, stream));
+    }
+
+    long moves = 0;
+    long totalScore = 0;
+    int maxExponent = 0;
+    try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+      for (Future<long[]> result : executor.invokeAll(workers)) {
+        long[] totals = result.get();
+        moves += totals[0];
+        totalScore += totals[1];
+        maxExponent = Math.max(maxExponent, (int) totals[2]);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Training was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Training worker failed", e.getCause());
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    return new Stats(games, moves, (double) totalScore / games, maxExponent, games / seconds);
+  }
+
+  // Plays games until the shared budget runs out; returns {moves, total score, max exponent}
+  private long[] work(AtomicInteger remaining, SplittableRandom random) {
+    long[] totals = new long[3];
+    while (remaining.getAndDecrement() > 0) {
+      playGame(random, totals);
+    }
+    return totals;
+  }
+
+  private void playGame(SplittableRandom random, long[] totals) {
+    long board = BitBoard.spawn(BitBoard.spawn(0L, random), random);
+    long previous = 0L;
+    boolean started = false;
+    long score = 0;
+    while (true) {
+      long bestAfter = 0L;
+      int bestReward = 0;
+      double bestValue = Double.NEGATIVE_INFINITY;
+      for (Direction direction : DIRECTIONS) {
+        long after = BitBoard.move(board, direction);
+        if (after == board) {
+          continue;
+        }
+        int reward = BitBoard.score(board, direction);
+        double value = reward + network.value(after);
+        if (value > bestValue) {
+          bestValue = value;
+          bestAfter = after;
+          bestReward = reward;
+        }
+      }
+      if (bestValue == Double.NEGATIVE_INFINITY) {
+        // Lost: nothing more can be gained from the last afterstate
+        if (started) {
+          network.update(previous, (float) (-network.value(previous) * stepSize));
+        }
+        break;
+      }
+      if (started) {
+        double error = bestValue - network.value(previous);
+        network.update(previous, (float) (error * stepSize));
+      }
+      previous = bestAfter;
+      started = true;
+      score += bestReward;
+      totals[0]++;
+      board = BitBoard.spawn(bestAfter, random);
+    }
+    totals[1] += score;
+    totals[2] = Math.max(totals[2], maxExponent(board));
+  }
+
+  private static int maxExponent(long board) {
+    int max = 0;
+    for (int cell = 0; cell < BitBoard.SIZE * BitBoard.SIZE; cell++) {
+      max = Math.max(max, (int) ((board >>> (4 * cell)) & 0xF));
+    }
+    return max;
+  }
+
+  public static void main(String[] args) {
+    long games = 0;
+    Path output = null;
+    int[][] tuples = NTupleNetwork.STANDARD_TUPLES;
+    float learningRate = DEFAULT_LEARNING_RATE;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long seed = System.nanoTime();
+    try {
+      for (int i = 0; i < args.length; i += 2) {
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("Missing value for " + args[i]);
+        }
+        String value = args[i + 1];
+        switch (args[i]) {
+          case "--games" -> games = Long.parseLong(value);
+          case "--output" -> output = Path.of(value);
+          case "--tuples" -> tuples = tuples(value);
+          case "--learning-rate" -> learningRate = Float.parseFloat(value);
+          case "--threads" -> threads = Integer.parseInt(value);
+          case "--seed" -> seed = Long.parseLong(value);
+          default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+      if (output == null) {
+        throw new IllegalArgumentException("An output file is required");
+      }
+      if (games < 1 || games > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("The number of games must be between 1 and 2^31 - 1");
+      }
+      TdTrainer trainer = new TdTrainer(new NTupleNetwork(tuples), learningRate);
+      Stats stats = trainer.train((int) games, threads, seed);
+      trainer.getNetwork().save(output);
+      System.out.printf(
+          Locale.ROOT,
+          "Trained on %d games, %d moves: mean score %.1f, max tile %d, %.1f games/s;"
+              + " %d bytes written%n",
+          stats.games(),
+          stats.moves(),
+          stats.meanScore(),
+          1 << stats.maxExponent(),
+          stats.gamesPerSecond(),
+          Files.size(output));
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+    } catch (IOException e) {
+      System.err.println("Cannot write " + output + ": " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  private static int[][] tuples(String name) {
+    return switch (name.toLowerCase(Locale.ROOT)) {
+      case "standard" -> NTupleNetwork.STANDARD_TUPLES;
+      case "small" -> NTupleNetwork.SMALL_TUPLES;
+      default -> throw new IllegalArgumentException("Unknown tuple layout " + name);
+    };
+  }
+}
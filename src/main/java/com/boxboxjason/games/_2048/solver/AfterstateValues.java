@@ -0,0 +1,94 @@
+package com.boxboxjason.games._2048.solver;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+
+/**
+ * Expected final score after every afterstate of a 2x2 or 3x3 game under optimal play, as computed
+ * by {@link ExactSolver}: each move is worth {@code gain + V(afterstate)}.
+ *
+ * <p>Afterstates are keyed by {@link ExactPolicy#canonicalKey} and grouped by tile sum, which a
+ * move never changes. Within a group the keys are sorted, so a lookup is a binary search. Boards
+ * that no game can reach have no value and count as lost after the move.
+ */
+final class AfterstateValues {
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  private final int size;
+  // Afterstates of tile sum 2 * g are at indices layerStarts[g] up to layerStarts[g + 1]
+  private final int[] layerStarts;
+  private final long[] keys;
+  private final float[] values;
+
+  AfterstateValues(int size, int[] layerStarts, long[] keys, float[] values) {
+    this.size = size;
+    this.layerStarts = layerStarts;
+    this.keys = keys;
+    this.values = values;
+  }
+
+  int getSize() {
+    return size;
+  }
+
+  // Number of distinct afterstates up to symmetry
+  int getStateCount() {
+    return keys.length;
+  }
+
+  /**
+   * Returns the expected final score gained from this board on by each direction, indexed by
+   * ordinal, NaN marking the directions in which no tile moves.
+   */
+  double[] evaluateMoves(byte[] cells) {
+    double[] moveValues = new double[DIRECTIONS.length];
+    byte[] after = new byte[cells.length];
+    for (Direction direction : DIRECTIONS) {
+      int gain = Grid.slide(cells, after, size, direction);
+      moveValues[direction.ordinal()] = gain == Grid.NO_MOVE ? Double.NaN : gain + value(after);
+    }
+    return moveValues;
+  }
+
+  // Expected score still to be gained from this board under optimal play, 0 if it is lost
+  double expectedScore(byte[] cells) {
+    double best = 0.0;
+    for (double value : evaluateMoves(cells)) {
+      if (!Double.isNaN(value)) {
+        best = Math.max(best, value);
+      }
+    }
+    return best;
+  }
+
+  // Value of an afterstate: the expected score gained after it, 0 if it is unknown
+  double value(byte[] after) {
+    return value(ExactPolicy.canonicalKey(after, size), ExactPolicy.tileSum(after));
+  }
+
+  double value(long key, int sum) {
+    int index = indexOf(key, sum);
+    return index < 0 ? 0.0 : values[index];
+  }
+
+  int indexOf(long key, int sum) {
+    int layer = sum / 2;
+    if (sum % 2 != 0 || layer + 1 >= layerStarts.length) {
+      return -1;
+    }
+    int low = layerStarts[layer];
+    int high = layerStarts[layer + 1] - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long found = keys[middle];
+      if (found < key) {
+        low = middle + 1;
+      } else if (found > key) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,101 @@
+package com.boxboxjason.games._2048.solver;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Iterative-deepening expectimax bounded by wall-clock time rather than depth.
+ *
+ * <p>Searches depth 1, 2, 3... until the {@link Deadline} expires or is cancelled, and returns the
+ * best move of the deepest search that completed. Before any search completes, the move is picked
+ * by a static evaluation of the boards each direction leads to, so an answer is always available
+ * however large the board and however small the budget.
+ */
+public class AnytimeSearch implements Strategy {
+  public static final int DEFAULT_MAX_DEPTH = 12;
+
+  private static final Direction[] DIRECTIONS = Direction.values();
+  // A depth costs at least this many times the previous one, a lower bound on the branching
+  private static final int MIN_GROWTH = 3;
+
+  private final Duration budget;
+  private final int maxDepth;
+  private final ExpectimaxSolver solver;
+
+  /** Outcome of a search: the move, the depth that produced it (0 for static) and its values. */
+  public record Result(Direction move, int depth, double[] values) {}
+
+  public AnytimeSearch(Duration budget) {
+    this(
+        budget,
+        DEFAULT_MAX_DEPTH,
+        new HeapTranspositionTable(ExpectimaxSolver.DEFAULT_TABLE_CAPACITY),
+        ForkJoinPool.commonPool());
+  }
+
+  public AnytimeSearch(
+      Duration budget, int maxDepth, TranspositionTable table, ForkJoinPool pool) {
+    if (budget.isNegative() || maxDepth < 1) {
+      throw new IllegalArgumentException("The budget must be positive and the depth at least 1");
+    }
+    this.budget = budget;
+    this.maxDepth = maxDepth;
+    this.solver =
+        new ExpectimaxSolver(maxDepth, ExpectimaxSolver.DEFAULT_PROBABILITY_CUTOFF, table, pool);
+  }
+
+  @Override
+  public Direction chooseMove(Grid grid) {
+    int size = grid.getSize();
+    byte[] cells = new byte[size * size];
+    grid.copyCells(cells);
+    return search(cells, size, Deadline.after(budget)).move();
+  }
+
+  public Result search(Grid grid, Deadline deadline) {
+    int size = grid.getSize();
+    byte[] cells = new byte[size * size];
+    grid.copyCells(cells);
+    return search(cells, size, deadline);
+  }
+
+  public Result search(byte[] cells, int size, Deadline deadline) {
+    double[] values = staticValues(cells, size);
+    Result best = new Result(Strategy.best(values), 0, values);
+    if (best.move() == null) {
+      return best;
+    }
+    long previous = 0;
+    for (int depth = 1; depth <= maxDepth && !deadline.isExpired(); depth++) {
+      long start = System.nanoTime();
+      values = solver.evaluateMoves(cells, size, depth, deadline);
+      if (values == null) {
+        break;
+      }
+      best = new Result(Strategy.best(values), depth, values);
+      // Don't start a depth that is bound to be cut short and thrown away
+      long elapsed = System.nanoTime() - start;
+      double growth =
+          previous == 0 ? MIN_GROWTH : Math.max(MIN_GROWTH, (double) elapsed / previous);
+      if (elapsed * growth > deadline.remainingNanos()) {
+        break;
+      }
+      previous = Math.max(elapsed, 1);
+    }
+    return best;
+  }
+
+  // Static evaluation of the board each direction leads to, NaN for the illegal ones
+  private static double[] staticValues(byte[] cells, int size) {
+    double[] values = new double[DIRECTIONS.length];
+    byte[] child = new byte[cells.length];
+    for (Direction direction : DIRECTIONS) {
+      int gain = Grid.slide(cells, child, size, direction);
+      values[direction.ordinal()] =
+          gain == Grid.NO_MOVE ? Double.NaN : BoardEvaluator.evaluate(child, size);
+    }
+    return values;
+  }
+}
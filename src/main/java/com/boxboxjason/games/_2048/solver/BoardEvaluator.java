@@ -0,0 +1,80 @@
+package com.boxboxjason.games._2048.solver;
+
+/**
+ * Static evaluation of exponent boards used at the leaves of the searches.
+ *
+ * <p>Every row and column is scored on its empty cells, pending merges, monotonicity and the
+ * weight of its tiles, the classic heuristic of strong 2048 expectimax players.
+ */
+final class BoardEvaluator {
+  private static final double LOST_PENALTY = 200000.0;
+  private static final double MONOTONICITY_POWER = 4.0;
+  private static final double MONOTONICITY_WEIGHT = 47.0;
+  private static final double SUM_POWER = 3.5;
+  private static final double SUM_WEIGHT = 11.0;
+  private static final double MERGES_WEIGHT = 700.0;
+  private static final double EMPTY_WEIGHT = 270.0;
+
+  // Powers of the exponents, so the evaluation never calls Math.pow
+  private static final double[] SUM_TERMS = new double[64];
+  private static final double[] MONOTONICITY_TERMS = new double[64];
+
+  static {
+    for (int rank = 0; rank < SUM_TERMS.length; rank++) {
+      SUM_TERMS[rank] = Math.pow(rank, SUM_POWER);
+      MONOTONICITY_TERMS[rank] = Math.pow(rank, MONOTONICITY_POWER);
+    }
+  }
+
+  private BoardEvaluator() {}
+
+  static double evaluate(byte[] cells, int size) {
+    double total = 0.0;
+    for (int i = 0; i < size; i++) {
+      total += evaluateLine(cells, i * size, 1, size);
+      total += evaluateLine(cells, i, size, size);
+    }
+    return total;
+  }
+
+  private static double evaluateLine(byte[] cells, int start, int step, int size) {
+    double sum = 0.0;
+    int empty = 0;
+    int merges = 0;
+    int previous = 0;
+    int counter = 0;
+    double monotonicityLeft = 0.0;
+    double monotonicityRight = 0.0;
+    for (int i = 0, index = start; i < size; i++, index += step) {
+      int rank = cells[index] & 0x3F;
+      sum += SUM_TERMS[rank];
+      if (rank == 0) {
+        empty++;
+      } else {
+        if (previous == rank) {
+          counter++;
+        } else if (counter > 0) {
+          merges += 1 + counter;
+          counter = 0;
+        }
+        previous = rank;
+      }
+      if (i > 0) {
+        int before = cells[index - step] & 0x3F;
+        if (before > rank) {
+          monotonicityLeft += MONOTONICITY_TERMS[before] - MONOTONICITY_TERMS[rank];
+        } else {
+          monotonicityRight += MONOTONICITY_TERMS[rank] - MONOTONICITY_TERMS[before];
+        }
+      }
+    }
+    if (counter > 0) {
+      merges += 1 + counter;
+    }
+    return LOST_PENALTY
+        + EMPTY_WEIGHT * empty
+        + MERGES_WEIGHT * merges
+        - MONOTONICITY_WEIGHT * Math.min(monotonicityLeft, monotonicityRight)
+        - SUM_WEIGHT * sum;
+  }
+}
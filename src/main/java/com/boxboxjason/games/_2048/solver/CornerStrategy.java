@@ -0,0 +1,30 @@
+package com.boxboxjason.games._2048.solver;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+
+/**
+ * The classic corner heuristic: keeps the big tiles in the bottom-left corner by always playing
+ * the first legal move of DOWN, LEFT, RIGHT, UP. Not thread-safe: use one instance per thread.
+ */
+public class CornerStrategy implements Strategy {
+  private static final Direction[] PREFERENCE = {
+    Direction.DOWN, Direction.LEFT, Direction.RIGHT, Direction.UP
+  };
+
+  private byte[] scratch = new byte[0];
+
+  @Override
+  public Direction chooseMove(Grid grid) {
+    int size = grid.getSize();
+    if (scratch.length != size * size) {
+      scratch = new byte[size * size];
+    }
+    for (Direction direction : PREFERENCE) {
+      if (grid.preview(direction, scratch) != Grid.NO_MOVE) {
+        return direction;
+      }
+    }
+    return null;
+  }
+}
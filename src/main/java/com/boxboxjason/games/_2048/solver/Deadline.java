@@ -0,0 +1,52 @@
+package com.boxboxjason.games._2048.solver;
+
+import java.time.Duration;
+
+/**
+ * Wall-clock limit for a search, which any thread can also cancel early. Searches poll it
+ * cooperatively and give up as soon as it has expired. A deadline made by {@link #within} also
+ * expires with its parent, so cancelling one parent stops a whole series of searches.
+ */
+public final class Deadline {
+  private final long deadlineNanos;
+  private final Deadline parent;
+  private volatile boolean cancelled;
+
+  private Deadline(long deadlineNanos, Deadline parent) {
+    this.deadlineNanos = deadlineNanos;
+    this.parent = parent;
+  }
+
+  public static Deadline after(Duration budget) {
+    return new Deadline(System.nanoTime() + budget.toNanos(), null);
+  }
+
+  // A deadline that only expires when cancelled
+  public static Deadline none() {
+    return new Deadline(Long.MAX_VALUE, null);
+  }
+
+  // A deadline budget from now that also expires when this one does
+  public Deadline within(Duration budget) {
+    return new Deadline(System.nanoTime() + budget.toNanos(), this);
+  }
+
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled || (parent != null && parent.isCancelled());
+  }
+
+  public boolean isExpired() {
+    return isCancelled() || remainingNanos() <= 0;
+  }
+
+  public long remainingNanos() {
+    // Long.MAX_VALUE - nanoTime() would overflow for none(), whose remaining time is unbounded
+    long remaining =
+        deadlineNanos == Long.MAX_VALUE ? Long.MAX_VALUE : deadlineNanos - System.nanoTime();
+    return parent == null ? remaining : Math.min(remaining, parent.remainingNanos());
+  }
+}
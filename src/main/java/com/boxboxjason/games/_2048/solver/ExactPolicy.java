@@ -0,0 +1,328 @@
+package com.boxboxjason.games._2048.solver;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import com.boxboxjason.games._2048.Zobrist;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Optimal play on a 2x2 or 3x3 grid, as solved by {@link ExactSolver}: the move maximising the
+ * expected final score from every board a game can reach.
+ *
+ * <p>Boards are keyed by their smallest packing (4 bits per cell) among the 8 symmetries. Only the
+ * best move of each board is kept, in 2 bits: its rank among the distinct keys of the boards left
+ * by the legal moves, which does not depend on the symmetry. The keys themselves are sorted and
+ * stored as the differences between neighbours, in variable-length bytes, cut into blocks of
+ * {@value #BLOCK_STATES} with the first key of each block in an index. A lookup is a binary search
+ * of the index and a scan of one block. The solved 3x3 game has 41 million boards and takes 56 MB,
+ * about 11 bits per board.
+ *
+ * <p>A loaded policy maps the file and reads it in place, so loading costs no copy. Boards that no
+ * game can reach, e.g. edited through {@link Grid#setGrid}, are not in the table, and boards with a
+ * tile above 2^15 have no key: they get the move scoring the most.
+ */
+public class ExactPolicy implements Strategy {
+  static final int MAGIC = 0x32505845; // "EXP2"
+
+  private static final Direction[] DIRECTIONS = Direction.values();
+  private static final int BITS_PER_CELL = 4;
+  static final int MAX_EXPONENT = (1 << BITS_PER_CELL) - 1;
+  static final int BLOCK_STATES = 128;
+  // magic, size, state count, key bytes
+  private static final int HEADER_BYTES = 16;
+
+  private final int size;
+  private final int stateCount;
+  private final int blockCount;
+  // Little-endian file image: header, first key of each block, offset of each block within the
+  // deltas (one more for the end), deltas between successive keys, then the moves
+  private final ByteBuffer data;
+  private final int firstKeysAt;
+  private final int offsetsAt;
+  private final int deltasAt;
+  private final int movesAt;
+
+  private ExactPolicy(ByteBuffer data) {
+    this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+    this.size = data.getInt(4);
+    this.stateCount = data.getInt(8);
+    this.blockCount = blockCount(stateCount);
+    this.firstKeysAt = HEADER_BYTES;
+    this.offsetsAt = firstKeysAt + Long.BYTES * blockCount;
+    this.deltasAt = offsetsAt + Integer.BYTES * (blockCount + 1);
+    this.movesAt = deltasAt + data.getInt(12);
+  }
+
+  /**
+   * Builds a policy from the sorted, distinct canonical keys of the boards and their best moves,
+   * packed 4 to a byte from the lowest bits.
+   */
+  static ExactPolicy of(int size, long[] states, byte[] moves) {
+    int blockCount = blockCount(states.length);
+    long deltaBytes = 0;
+    for (int i = 0; i < states.length; i++) {
+      if (i % BLOCK_STATES != 0) {
+        deltaBytes += varintBytes(states[i] - states[i - 1]);
+      }
+    }
+    long total =
+        HEADER_BYTES
+            + (long) Long.BYTES * blockCount
+            + (long) Integer.BYTES * (blockCount + 1)
+            + deltaBytes
+            + moveBytes(states.length);
+    if (total > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Policy too large for one file: " + total + " bytes");
+    }
+    ByteBuffer data = ByteBuffer.allocate((int) total).order(ByteOrder.LITTLE_ENDIAN);
+    data.putInt(MAGIC).putInt(size).putInt(states.length).putInt((int) deltaBytes);
+    for (int block = 0; block < blockCount; block++) {
+      data.putLong(states[block * BLOCK_STATES]);
+    }
+    int offsetsAt = data.position();
+    int deltasAt = offsetsAt + Integer.BYTES * (blockCount + 1);
+    data.position(deltasAt);
+    for (int i = 0; i < states.length; i++) {
+      if (i % BLOCK_STATES == 0) {
+        data.putInt(offsetsAt + Integer.BYTES * (i / BLOCK_STATES), data.position() - deltasAt);
+      } else {
+        putVarint(data, states[i] - states[i - 1]);
+      }
+    }
+    data.putInt(offsetsAt + Integer.BYTES * blockCount, (int) deltaBytes);
+    data.put(moves, 0, moveBytes(states.length));
+    return new ExactPolicy(data.clear());
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  // Number of distinct boards up to symmetry that have a move to play
+  public int getStateCount() {
+    return stateCount;
+  }
+
+  @Override
+  public Direction chooseMove(Grid grid) {
+    if (grid.getSize() != size) {
+      throw new IllegalArgumentException(
+          "This policy plays on a " + size + "x" + size + " grid only");
+    }
+    byte[] cells = new byte[size * size];
+    grid.copyCells(cells);
+    return chooseMove(cells);
+  }
+
+  // Best move from the board, null if no direction moves any tile
+  public Direction chooseMove(byte[] cells) {
+    long[] afterKeys = new long[DIRECTIONS.length];
+    int[] gains = new int[DIRECTIONS.length];
+    if (!afterstates(cells, size, afterKeys, gains)) {
+      return null;
+    }
+    // Larger tiles would spill into the neighbouring cells of the key and alias another board
+    for (byte exponent : cells) {
+      if (exponent > MAX_EXPONENT) {
+        return mostScoring(gains);
+      }
+    }
+    int index = indexOf(canonicalKey(cells, size));
+    if (index >= 0) {
+      int rank = data.get(movesAt + index / 4) >>> (2 * (index % 4)) & 3;
+      for (Direction direction : DIRECTIONS) {
+        long key = afterKeys[direction.ordinal()];
+        if (key >= 0 && rank(afterKeys, key) == rank) {
+          return direction;
+        }
+      }
+    }
+    return mostScoring(gains);
+  }
+
+  // Legal move gaining the most, for the boards the table does not cover
+  private static Direction mostScoring(int[] gains) {
+    Direction best = null;
+    for (Direction direction : DIRECTIONS) {
+      int gain = gains[direction.ordinal()];
+      if (gain != Grid.NO_MOVE && (best == null || gain > gains[best.ordinal()])) {
+        best = direction;
+      }
+    }
+    return best;
+  }
+
+  // Position of the board among the stored ones, -1 if it is not stored
+  int indexOf(long key) {
+    int low = 0;
+    int high = blockCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (data.getLong(firstKeysAt + Long.BYTES * middle) <= key) {
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    int block = high;
+    if (block < 0) {
+      return -1;
+    }
+    long found = data.getLong(firstKeysAt + Long.BYTES * block);
+    int index = block * BLOCK_STATES;
+    int position = deltasAt + data.getInt(offsetsAt + Integer.BYTES * block);
+    int end = deltasAt + data.getInt(offsetsAt + Integer.BYTES * (block + 1));
+    while (found < key && position < end) {
+      long delta = 0;
+      int shift = 0;
+      byte next;
+      do {
+        next = data.get(position++);
+        delta |= (long) (next & 0x7f) << shift;
+        shift += 7;
+      } while (next < 0 && position < end);
+      found += delta;
+      index++;
+    }
+    return found == key ? index : -1;
+  }
+
+  /**
+   * Fills in the canonical key of the board left by each move and the score it gains, indexed by
+   * ordinal, with -1 and {@link Grid#NO_MOVE} for the directions in which no tile moves. Returns
+   * whether any direction moves.
+   */
+  static boolean afterstates(byte[] cells, int size, long[] afterKeys, int[] gains) {
+    byte[] after = new byte[cells.length];
+    boolean any = false;
+    for (Direction direction : DIRECTIONS) {
+      int gain = Grid.slide(cells, after, size, direction);
+      gains[direction.ordinal()] = gain;
+      afterKeys[direction.ordinal()] = gain == Grid.NO_MOVE ? -1 : canonicalKey(after, size);
+      any |= gain != Grid.NO_MOVE;
+    }
+    return any;
+  }
+
+  // Number of distinct afterstate keys smaller than this one, -1 marking the illegal moves
+  static int rank(long[] afterKeys, long key) {
+    int rank = 0;
+    for (int i = 0; i < afterKeys.length; i++) {
+      long other = afterKeys[i];
+      boolean repeated = false;
+      for (int j = 0; j < i; j++) {
+        repeated |= afterKeys[j] == other;
+      }
+      if (other >= 0 && other < key && !repeated) {
+        rank++;
+      }
+    }
+    return rank;
+  }
+
+  /**
+   * Writes the policy as a little-endian header ({@code magic, size, state count, delta bytes})
+   * followed by the block index, the key deltas and the moves, so {@link #load(Path)} can map them
+   * in place.
+   */
+  public void save(Path path) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer contents = data.duplicate().clear();
+      while (contents.hasRemaining()) {
+        channel.write(contents);
+      }
+    }
+  }
+
+  /** Maps a policy written by {@link #save(Path)}; its pages are read lazily. */
+  public static ExactPolicy load(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      channel.read(header, 0);
+      header.flip();
+      if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+        throw new IOException("Not an exact policy file: " + path);
+      }
+      int size = header.getInt();
+      int stateCount = header.getInt();
+      int deltaBytes = header.getInt();
+      if (size < 2 || size > ExactSolver.MAX_SIZE || stateCount < 0 || deltaBytes < 0) {
+        throw new IOException("Invalid exact policy header in " + path);
+      }
+      int blockCount = blockCount(stateCount);
+      long total =
+          HEADER_BYTES
+              + (long) Long.BYTES * blockCount
+              + (long) Integer.BYTES * (blockCount + 1)
+              + deltaBytes
+              + moveBytes(stateCount);
+      if (total > channel.size()) {
+        throw new IOException("Truncated exact policy file: " + path);
+      }
+      if (total > Integer.MAX_VALUE) {
+        throw new IOException("Exact policy file too large: " + path);
+      }
+      return new ExactPolicy(channel.map(FileChannel.MapMode.READ_ONLY, 0, total));
+    }
+  }
+
+  // Smallest packing of the board among its symmetries
+  static long canonicalKey(byte[] cells, int size) {
+    long best = Long.MAX_VALUE;
+    for (int symmetry = 0; symmetry < Zobrist.SYMMETRIES; symmetry++) {
+      long key = 0;
+      for (int cell = 0; cell < cells.length; cell++) {
+        key |= (long) cells[cell] << (BITS_PER_CELL * Zobrist.transform(symmetry, cell, size));
+      }
+      best = Math.min(best, key);
+    }
+    return best;
+  }
+
+  static void unpack(long key, byte[] cells) {
+    for (int cell = 0; cell < cells.length; cell++) {
+      cells[cell] = (byte) (key >>> (BITS_PER_CELL * cell) & MAX_EXPONENT);
+    }
+  }
+
+  static int tileSum(byte[] cells) {
+    int sum = 0;
+    for (byte exponent : cells) {
+      if (exponent != 0) {
+        sum += 1 << exponent;
+      }
+    }
+    return sum;
+  }
+
+  static int moveBytes(int stateCount) {
+    return (stateCount + 3) / 4;
+  }
+
+  private static int blockCount(int stateCount) {
+    return (stateCount + BLOCK_STATES - 1) / BLOCK_STATES;
+  }
+
+  // Unsigned LEB128: 7 bits per byte, the high bit set on every byte but the last
+  private static int varintBytes(long value) {
+    return Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 6) / 7);
+  }
+
+  private static void putVarint(ByteBuffer buffer, long value) {
+    while ((value & ~0x7fL) != 0) {
+      buffer.put((byte) (value & 0x7f | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+}
@@ -0,0 +1,447 @@
+package com.boxboxjason.games._2048.solver;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import com.boxboxjason.games._2048.LineKernels;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves 2x2 and 3x3 games exactly, producing the {@link ExactPolicy} that maximises the expected
+ * final score.
+ *
+ * <p>Every afterstate (the board right after a move, before the spawn) reachable from a new game is
+ * enumerated, one symmetry class at a time. A move keeps the tile sum and a spawn raises it by 2 or
+ * 4, so afterstates fall into layers by tile sum, each depending only on the two layers above it:
+ * values are computed from the largest sum down, every layer split across the worker threads.
+ * Spawning on every afterstate then gives every board with a move to play, and the values its best
+ * move, which is all the policy keeps.
+ *
+ * <pre>
+ * java -cp 2048.jar com.boxboxjason.games._2048.solver.ExactSolver \
+ *     --size 3 --output policy-3x3.bin --threads 8
+ * </pre>
+ */
+public class ExactSolver {
+  public static final int MAX_SIZE = 3;
+
+  private static final String USAGE =
+      "Usage: ExactSolver --output FILE [--size 2|3] [--threads N]";
+  private static final Direction[] DIRECTIONS = Direction.values();
+  // Work units per thread, so that uneven chunks still keep every thread busy
+  private static final int CHUNKS_PER_THREAD = 8;
+
+  private final int size;
+  private final int threads;
+
+  public ExactSolver(int size, int threads) {
+    if (size < 2 || size > MAX_SIZE) {
+      throw new IllegalArgumentException("Only 2x2 and 3x3 grids can be solved exactly");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("At least one worker thread is required");
+    }
+    this.size = size;
+    this.threads = threads;
+  }
+
+  // The policy, with the afterstate values it was read from
+  record Solution(AfterstateValues values, ExactPolicy policy) {}
+
+  public ExactPolicy solve() {
+    return solveWithValues().policy();
+  }
+
+  Solution solveWithValues() {
+    try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+      TreeMap<Integer, long[]> layers = enumerate(executor);
+      AfterstateValues values = retrograde(layers, executor);
+      long[] states = decisionStates(layers, executor);
+      layers.clear();
+      byte[] moves = bestMoves(values, states, executor);
+      return new Solution(values, ExactPolicy.of(size, states, moves));
+    }
+  }
+
+  // Every afterstate reachable from a new game, by tile sum, sorted
+  private TreeMap<Integer, long[]> enumerate(ExecutorService executor) {
+    TreeMap<Integer, List<long[]>> pending = new TreeMap<>();
+    byte[] cells = new byte[size * size];
+    KeyBuffer first = new KeyBuffer();
+    // A new game starts with two spawned tiles
+    for (int a = 0; a < cells.length; a++) {
+      for (int b = a + 1; b < cells.length; b++) {
+        for (byte tileA = 1; tileA <= 2; tileA++) {
+          for (byte tileB = 1; tileB <= 2; tileB++) {
+            Arrays.fill(cells, (byte) 0);
+            cells[a] = tileA;
+            cells[b] = tileB;
+            addAfterstates(cells, first);
+          }
+        }
+      }
+    }
+    addPending(pending, first.toArray());
+
+    TreeMap<Integer, long[]> layers = new TreeMap<>();
+    while (!pending.isEmpty()) {
+      Map.Entry<Integer, List<long[]>> next = pending.pollFirstEntry();
+      long[] layer = sortedUnique(next.getValue());
+      layers.put(next.getKey(), layer);
+      List<long[]> successors =
+          parallel(
+              executor,
+              layer.length,
+              (from, to) -> {
+                byte[] after = new byte[size * size];
+                KeyBuffer found = new KeyBuffer();
+                for (int i = from; i < to; i++) {
+                  ExactPolicy.unpack(layer[i], after);
+                  for (int cell = 0; cell < after.length; cell++) {
+                    if (after[cell] != 0) {
+                      continue;
+                    }
+                    for (byte tile = 1; tile <= 2; tile++) {
+                      after[cell] = tile;
+                      addAfterstates(after, found);
+                      after[cell] = 0;
+                    }
+                  }
+                }
+                return sortedUnique(List.of(found.toArray()));
+              });
+      for (long[] keys : successors) {
+        addPending(pending, keys);
+      }
+    }
+    return layers;
+  }
+
+  // Canonical keys of the afterstates of every legal move from the board
+  private void addAfterstates(byte[] board, KeyBuffer found) {
+    byte[] after = new byte[board.length];
+    for (Direction direction : DIRECTIONS) {
+      if (Grid.slide(board, after, size, direction) != Grid.NO_MOVE) {
+        for (byte exponent : after) {
+          if (exponent > ExactPolicy.MAX_EXPONENT) {
+            throw new IllegalStateException("Tile too large to pack: 2^" + exponent);
+          }
+        }
+        found.add(ExactPolicy.canonicalKey(after, size));
+      }
+    }
+  }
+
+  private void addPending(TreeMap<Integer, List<long[]>> pending, long[] keys) {
+    byte[] cells = new byte[size * size];
+    TreeMap<Integer, KeyBuffer> bySum = new TreeMap<>();
+    for (long key : keys) {
+      ExactPolicy.unpack(key, cells);
+      bySum.computeIfAbsent(ExactPolicy.tileSum(cells), sum -> new KeyBuffer()).add(key);
+    }
+    bySum.forEach(
+        (sum, group) -> pending.computeIfAbsent(sum, s -> new ArrayList<>()).add(group.toArray()));
+  }
+
+  // Values of all the layers, from the largest tile sum down
+  private AfterstateValues retrograde(TreeMap<Integer, long[]> layers, ExecutorService executor) {
+    int maxSum = layers.lastKey();
+    int[] layerStarts = new int[maxSum / 2 + 2];
+    int count = 0;
+    for (int group = 0; group + 1 < layerStarts.length; group++) {
+      layerStarts[group] = count;
+      long[] layer = layers.get(2 * group);
+      count += layer == null ? 0 : layer.length;
+    }
+    layerStarts[layerStarts.length - 1] = count;
+    long[] keys = new long[count];
+    layers.forEach(
+        (sum, layer) -> System.arraycopy(layer, 0, keys, layerStarts[sum / 2], layer.length));
+    float[] values = new float[count];
+    AfterstateValues afterstateValues = new AfterstateValues(size, layerStarts, keys, values);
+
+    for (int sum : layers.descendingKeySet()) {
+      int start = layerStarts[sum / 2];
+      parallel(
+          executor,
+          layers.get(sum).length,
+          (from, to) -> {
+            byte[] after = new byte[size * size];
+            for (int i = start + from; i < start + to; i++) {
+              ExactPolicy.unpack(keys[i], after);
+              values[i] = (float) spawnValue(afterstateValues, after);
+            }
+            return null;
+          });
+    }
+    return afterstateValues;
+  }
+
+  // Expected score after the spawn on an afterstate, with optimal play from there on
+  private static double spawnValue(AfterstateValues values, byte[] after) {
+    int empty = 0;
+    for (byte exponent : after) {
+      if (exponent == 0) {
+        empty++;
+      }
+    }
+    double value = 0.0;
+    for (int cell = 0; cell < after.length; cell++) {
+      if (after[cell] != 0) {
+        continue;
+      }
+      after[cell] = 1;
+      value += ExpectimaxSolver.SPAWN_TWO_PROBABILITY * values.expectedScore(after);
+      after[cell] = 2;
+      value += (1 - ExpectimaxSolver.SPAWN_TWO_PROBABILITY) * values.expectedScore(after);
+      after[cell] = 0;
+    }
+    return value / empty;
+  }
+
+  // Every board with a move to play that a game can reach: the openings and spawns on afterstates
+  private long[] decisionStates(TreeMap<Integer, long[]> layers, ExecutorService executor) {
+    TreeMap<Integer, List<long[]>> pending = new TreeMap<>();
+    byte[] cells = new byte[size * size];
+    KeyBuffer openings = new KeyBuffer();
+    for (int a = 0; a < cells.length; a++) {
+      for (int b = a + 1; b < cells.length; b++) {
+        for (byte tileA = 1; tileA <= 2; tileA++) {
+          for (byte tileB = 1; tileB <= 2; tileB++) {
+            Arrays.fill(cells, (byte) 0);
+            cells[a] = tileA;
+            cells[b] = tileB;
+            openings.add(ExactPolicy.canonicalKey(cells, size));
+          }
+        }
+      }
+    }
+    addPending(pending, openings.toArray());
+
+    List<long[]> states = new ArrayList<>();
+    for (Map.Entry<Integer, long[]> entry : layers.entrySet()) {
+      long[] layer = entry.getValue();
+      List<long[]> spawned =
+          parallel(
+              executor,
+              layer.length,
+              (from, to) -> {
+                byte[] board = new byte[size * size];
+                KeyBuffer found = new KeyBuffer();
+                for (int i = from; i < to; i++) {
+                  ExactPolicy.unpack(layer[i], board);
+                  for (int cell = 0; cell < board.length; cell++) {
+                    if (board[cell] != 0) {
+                      continue;
+                    }
+                    for (byte tile = 1; tile <= 2; tile++) {
+                      board[cell] = tile;
+                      // A full board without a pair has no move and needs none stored
+                      if (LineKernels.countEmpty(board, size) > 0
+                          || LineKernels.hasMergeablePair(board, size)) {
+                        found.add(ExactPolicy.canonicalKey(board, size));
+                      }
+                      board[cell] = 0;
+                    }
+                  }
+                }
+                return sortedUnique(List.of(found.toArray()));
+              });
+      for (long[] keys : spawned) {
+        addPending(pending, keys);
+      }
+      // A spawn adds 2 or 4 to the tile sum, so the boards up to this sum + 2 are all found
+      while (!pending.isEmpty() && pending.firstKey() <= entry.getKey() + 2) {
+        states.add(sortedUnique(pending.pollFirstEntry().getValue()));
+      }
+    }
+    while (!pending.isEmpty()) {
+      states.add(sortedUnique(pending.pollFirstEntry().getValue()));
+    }
+    return sortedUnique(states);
+  }
+
+  // Best move of each board, as its rank among the afterstates, packed 4 to a byte
+  private byte[] bestMoves(AfterstateValues values, long[] states, ExecutorService executor) {
+    byte[] moves = new byte[ExactPolicy.moveBytes(states.length)];
+    // Chunks of whole bytes, so that no two threads write the same one
+    parallel(
+        executor,
+        moves.length,
+        (from, to) -> {
+          byte[] cells = new byte[size * size];
+          long[] afterKeys = new long[DIRECTIONS.length];
+          int[] gains = new int[DIRECTIONS.length];
+          for (int i = 4 * from; i < Math.min(4 * to, states.length); i++) {
+            ExactPolicy.unpack(states[i], cells);
+            ExactPolicy.afterstates(cells, size, afterKeys, gains);
+            int sum = ExactPolicy.tileSum(cells);
+            double best = Double.NEGATIVE_INFINITY;
+            long bestKey = -1;
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+              if (afterKeys[d] < 0) {
+                continue;
+              }
+              double value = gains[d] + values.value(afterKeys[d], sum);
+              if (value > best) {
+                best = value;
+                bestKey = afterKeys[d];
+              }
+            }
+            moves[i / 4] |= (byte) (ExactPolicy.rank(afterKeys, bestKey) << (2 * (i % 4)));
+          }
+          return null;
+        });
+    return moves;
+  }
+
+  /** Expected final score of a new game under optimal play, over both opening spawns. */
+  static double newGameExpectedScore(AfterstateValues values) {
+    int size = values.getSize();
+    byte[] cells = new byte[size * size];
+    double total = 0.0;
+    for (int a = 0; a < cells.length; a++) {
+      for (int b = 0; b < cells.length; b++) {
+        if (a == b) {
+          continue;
+        }
+        for (byte tileA = 1; tileA <= 2; tileA++) {
+          for (byte tileB = 1; tileB <= 2; tileB++) {
+            Arrays.fill(cells, (byte) 0);
+            cells[a] = tileA;
+            cells[b] = tileB;
+            total += probability(tileA) * probability(tileB) * values.expectedScore(cells);
+          }
+        }
+      }
+    }
+    return total / (cells.length * (cells.length - 1));
+  }
+
+  private static double probability(byte tile) {
+    return tile == 1
+        ? ExpectimaxSolver.SPAWN_TWO_PROBABILITY
+        : 1 - ExpectimaxSolver.SPAWN_TWO_PROBABILITY;
+  }
+
+  // Growable array of keys, to avoid boxing tens of millions of them
+  private static final class KeyBuffer {
+    private long[] keys = new long[64];
+    private int count;
+
+    void add(long key) {
+      if (count == keys.length) {
+        keys = Arrays.copyOf(keys, count * 2);
+      }
+      keys[count++] = key;
+    }
+
+    long[] toArray() {
+      return Arrays.copyOf(keys, count);
+    }
+  }
+
+  private interface Chunk<T> {
+    T run(int from, int to);
+  }
+
+  // Runs the chunks of [0, count) on the executor, returning their results in order
+  private <T> List<T> parallel(ExecutorService executor, int count, Chunk<T> chunk) {
+    int chunks = Math.max(1, Math.min(count, threads * CHUNKS_PER_THREAD));
+    List<Callable<T>> tasks = new ArrayList<>();
+    for (int c = 0; c < chunks; c++) {
+      int from = (int) ((long) count * c / chunks);
+      int to = (int) ((long) count * (c + 1) / chunks);
+      tasks.add(() -> chunk.run(from, to));
+    }
+    List<T> results = new ArrayList<>();
+    try {
+      for (Future<T> result : executor.invokeAll(tasks)) {
+        results.add(result.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Solving was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Solver worker failed", e.getCause());
+    }
+    return results;
+  }
+
+  private static long[] sortedUnique(List<long[]> parts) {
+    int total = 0;
+    for (long[] part : parts) {
+      total += part.length;
+    }
+    long[] all = new long[total];
+    int offset = 0;
+    for (long[] part : parts) {
+      System.arraycopy(part, 0, all, offset, part.length);
+      offset += part.length;
+    }
+    Arrays.parallelSort(all);
+    int unique = 0;
+    for (int i = 0; i < all.length; i++) {
+      if (unique == 0 || all[i] != all[unique - 1]) {
+        all[unique++] = all[i];
+      }
+    }
+    return Arrays.copyOf(all, unique);
+  }
+
+  public static void main(String[] args) {
+    int size = MAX_SIZE;
+    int threads = Runtime.getRuntime().availableProcessors();
+    Path output = null;
+    try {
+      for (int i = 0; i < args.length; i += 2) {
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("Missing value for " + args[i]);
+        }
+        String value = args[i + 1];
+        switch (args[i]) {
+          case "--size" -> size = Integer.parseInt(value);
+          case "--threads" -> threads = Integer.parseInt(value);
+          case "--output" -> output = Path.of(value);
+          default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+      if (output == null) {
+        throw new IllegalArgumentException("An output file is required");
+      }
+      long start = System.nanoTime();
+      Solution solution = new ExactSolver(size, threads).solveWithValues();
+      solution.policy().save(output);
+      System.out.printf(
+          Locale.ROOT,
+          "Solved %dx%d: %d afterstates, %d boards in %.1f s, %d bytes written,"
+              + " expected score of a new game %.2f%n",
+          size,
+          size,
+          solution.values().getStateCount(),
+          solution.policy().getStateCount(),
+          (System.nanoTime() - start) / 1e9,
+          Files.size(output),
+          newGameExpectedScore(solution.values()));
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+    } catch (IOException e) {
+      System.err.println("Cannot write " + output + ": " + e.getMessage());
+      System.exit(1);
+    }
+  }
+}
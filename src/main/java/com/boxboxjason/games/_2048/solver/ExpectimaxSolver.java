@@ -0,0 +1,205 @@
+package com.boxboxjason.games._2048.solver;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import com.boxboxjason.games._2048.LineKernels;
+import com.boxboxjason.games._2048.Zobrist;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Depth-limited expectimax over the spawn outcomes (a 2 with p=0.9, a 4 with p=0.1 on any empty
+ * cell), scored by {@link BoardEvaluator} at the leaves.
+ *
+ * <p>Branches whose probability falls below the cutoff are evaluated statically instead of being
+ * expanded. The root is split into one task per (direction, spawn cell) run on a ForkJoinPool,
+ * all of them sharing one transposition table.
+ */
+public class ExpectimaxSolver implements Strategy {
+  public static final double SPAWN_TWO_PROBABILITY = 0.9;
+  public static final double DEFAULT_PROBABILITY_CUTOFF = 1e-4;
+  public static final int DEFAULT_TABLE_CAPACITY = 1 << 20;
+
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  private final int depth;
+  private final double probabilityCutoff;
+  private final TranspositionTable table;
+  private final ForkJoinPool pool;
+
+  public ExpectimaxSolver(int depth) {
+    this(
+        depth,
+        DEFAULT_PROBABILITY_CUTOFF,
+        new HeapTranspositionTable(DEFAULT_TABLE_CAPACITY),
+        ForkJoinPool.commonPool());
+  }
+
+  public ExpectimaxSolver(
+      int depth, double probabilityCutoff, TranspositionTable table, ForkJoinPool pool) {
+    if (depth < 1) {
+      throw new IllegalArgumentException("Search depth must be at least 1");
+    }
+    this.depth = depth;
+    this.probabilityCutoff = probabilityCutoff;
+    this.table = table;
+    this.pool = pool;
+  }
+
+  @Override
+  public Direction chooseMove(Grid grid) {
+    int size = grid.getSize();
+    byte[] cells = new byte[size * size];
+    grid.copyCells(cells);
+    return chooseMove(cells, size);
+  }
+
+  public Direction chooseMove(byte[] cells, int size) {
+    return Strategy.best(evaluateMoves(cells, size));
+  }
+
+  /**
+   * Returns the expected value of playing each direction, indexed by ordinal, NaN marking the
+   * directions in which no tile moves.
+   */
+  public double[] evaluateMoves(byte[] cells, int size) {
+    return evaluateMoves(cells, size, depth, Deadline.none());
+  }
+
+  // Same as evaluateMoves(cells, size) searching depth plies, or null if the deadline expired first
+  double[] evaluateMoves(byte[] cells, int size, int depth, Deadline deadline) {
+    double[] values = new double[DIRECTIONS.length];
+    int[] empties = new int[DIRECTIONS.length];
+    List<ForkJoinTask<Double>> tasks = new ArrayList<>();
+    List<Direction> owners = new ArrayList<>();
+    for (Direction direction : DIRECTIONS) {
+      byte[] child = new byte[cells.length];
+      if (Grid.slide(cells, child, size, direction) == Grid.NO_MOVE) {
+        values[direction.ordinal()] = Double.NaN;
+        continue;
+      }
+      for (int cell = 0; cell < child.length; cell++) {
+        if (child[cell] == 0) {
+          empties[direction.ordinal()]++;
+        }
+      }
+      double probability = 1.0 / empties[direction.ordinal()];
+      for (int cell = 0; cell < child.length; cell++) {
+        if (child[cell] == 0) {
+          int spawnCell = cell;
+          tasks.add(
+              pool.submit(
+                  () ->
+                      new Search(size, depth, deadline)
+                          .spawnValue(child, spawnCell, depth - 1, probability)));
+          owners.add(direction);
+        }
+      }
+    }
+    boolean expired = false;
+    for (int i = 0; i < tasks.size(); i++) {
+      Direction direction = owners.get(i);
+      double value = tasks.get(i).join();
+      // Aborted tasks return NaN; the others are still joined so none outlives the call
+      expired |= Double.isNaN(value);
+      values[direction.ordinal()] += value / empties[direction.ordinal()];
+    }
+    return expired ? null : values;
+  }
+
+  // Thrown through the recursion when the deadline expires; no stack trace, it is never reported
+  private static final class SearchAbortedException extends RuntimeException {
+    SearchAbortedException() {
+      super(null, null, false, false);
+    }
+  }
+
+  // Per-task search state: one scratch board per remaining depth, so nodes never allocate
+  private final class Search {
+    // Polling the clock every node would cost more than the nodes themselves
+    private static final int POLL_INTERVAL = 256;
+
+    private final int size;
+    private final byte[][] boards;
+    private final Deadline deadline;
+    private int untilPoll = POLL_INTERVAL;
+
+    Search(int size, int depth, Deadline deadline) {
+      this.size = size;
+      this.boards = new byte[depth + 1][size * size];
+      this.deadline = deadline;
+    }
+
+    // Value of the board after a move, given that the next tile spawns on cell; NaN if aborted
+    double spawnValue(byte[] afterMove, int cell, int remaining, double probability) {
+      try {
+        return spawnValueOrAbort(afterMove, cell, remaining, probability);
+      } catch (SearchAbortedException e) {
+        return Double.NaN;
+      }
+    }
+
+    private double spawnValueOrAbort(
+        byte[] afterMove, int cell, int remaining, double probability) {
+      if (deadline.isExpired()) {
+        throw new SearchAbortedException();
+      }
+      byte[] board = afterMove.clone();
+      board[cell] = 1;
+      double value =
+          SPAWN_TWO_PROBABILITY
+              * maxNode(board, remaining, probability * SPAWN_TWO_PROBABILITY);
+      board[cell] = 2;
+      value +=
+          (1 - SPAWN_TWO_PROBABILITY)
+              * maxNode(board, remaining, probability * (1 - SPAWN_TWO_PROBABILITY));
+      return value;
+    }
+
+    private double maxNode(byte[] board, int remaining, double probability) {
+      if (--untilPoll == 0) {
+        untilPoll = POLL_INTERVAL;
+        if (deadline.isExpired()) {
+          throw new SearchAbortedException();
+        }
+      }
+      if (remaining == 0 || probability < probabilityCutoff) {
+        return BoardEvaluator.evaluate(board, size);
+      }
+      long key = Zobrist.hash(board, size);
+      double cached = table.probe(key, remaining);
+      if (!Double.isNaN(cached)) {
+        return cached;
+      }
+      // A lost board is worth nothing
+      double best = 0.0;
+      byte[] child = boards[remaining];
+      for (Direction direction : DIRECTIONS) {
+        if (Grid.slide(board, child, size, direction) != Grid.NO_MOVE) {
+          best = Math.max(best, chanceNode(child, remaining, probability));
+        }
+      }
+      table.store(key, remaining, best);
+      return best;
+    }
+
+    private double chanceNode(byte[] board, int remaining, double probability) {
+      int empty = LineKernels.countEmpty(board, size);
+      double twoProbability = probability * SPAWN_TWO_PROBABILITY / empty;
+      double fourProbability = probability * (1 - SPAWN_TWO_PROBABILITY) / empty;
+      double sum = 0.0;
+      for (int cell = 0; cell < board.length; cell++) {
+        if (board[cell] == 0) {
+          board[cell] = 1;
+          sum += SPAWN_TWO_PROBABILITY * maxNode(board, remaining - 1, twoProbability);
+          board[cell] = 2;
+          sum += (1 - SPAWN_TWO_PROBABILITY) * maxNode(board, remaining - 1, fourProbability);
+          board[cell] = 0;
+        }
+      }
+      return sum / empty;
+    }
+  }
+}
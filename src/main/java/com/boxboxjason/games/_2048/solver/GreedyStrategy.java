@@ -0,0 +1,39 @@
+package com.boxboxjason.games._2048.solver;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+
+/**
+ * Plays the move gaining the most score right away, breaking ties by the number of empty cells it
+ * leaves. Not thread-safe: use one instance per thread.
+ */
+public class GreedyStrategy implements Strategy {
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  private byte[] scratch = new byte[0];
+
+  @Override
+  public Direction chooseMove(Grid grid) {
+    int size = grid.getSize();
+    if (scratch.length != size * size) {
+      scratch = new byte[size * size];
+    }
+    double[] values = new double[DIRECTIONS.length];
+    for (Direction direction : DIRECTIONS) {
+      int gain = grid.preview(direction, scratch);
+      if (gain == Grid.NO_MOVE) {
+        values[direction.ordinal()] = Double.NaN;
+        continue;
+      }
+      int empty = 0;
+      for (byte exponent : scratch) {
+        if (exponent == 0) {
+          empty++;
+        }
+      }
+      // An empty cell is worth less than the smallest merge, so it only breaks ties
+      values[direction.ordinal()] = gain + empty / (double) (scratch.length + 1);
+    }
+    return Strategy.best(values);
+  }
+}
@@ -0,0 +1,69 @@
+package com.boxboxjason.games._2048.solver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, always-replace transposition table on two long arrays.
+ *
+ * <p>Updates are lock-free: each slot stores {@code key ^ data} next to {@code data}, so a slot
+ * torn by two racing writers simply fails the key check on probe instead of returning a wrong
+ * value.
+ */
+public class HeapTranspositionTable implements TranspositionTable {
+  private final AtomicLongArray checks;
+  private final AtomicLongArray data;
+  private final int mask;
+
+  // Capacity is rounded up to a power of two
+  public HeapTranspositionTable(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+    }
+    int slots = Integer.highestOneBit(capacity);
+    if (slots < capacity) {
+      slots <<= 1;
+    }
+    this.checks = new AtomicLongArray(slots);
+    this.data = new AtomicLongArray(slots);
+    this.mask = slots - 1;
+  }
+
+  @Override
+  public double probe(long key, int depth) {
+    int slot = slot(key);
+    long entry = data.getOpaque(slot);
+    if ((checks.getOpaque(slot) ^ entry) != key || entry == 0L || depthOf(entry) < depth) {
+      return Double.NaN;
+    }
+    return Float.intBitsToFloat((int) entry);
+  }
+
+  @Override
+  public void store(long key, int depth, double value) {
+    // Depth is stored + 1 so that an empty slot (data 0) never matches
+    long entry = (long) (depth + 1) << 32 | (Float.floatToRawIntBits((float) value) & 0xFFFFFFFFL);
+    int slot = slot(key);
+    data.setOpaque(slot, entry);
+    checks.setOpaque(slot, key ^ entry);
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i <= mask; i++) {
+      data.setOpaque(i, 0L);
+      checks.setOpaque(i, 0L);
+    }
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+
+  private int slot(long key) {
+    return (int) (key ^ (key >>> 32)) & mask;
+  }
+
+  private static int depthOf(long entry) {
+    return (int) (entry >>> 32) - 1;
+  }
+}
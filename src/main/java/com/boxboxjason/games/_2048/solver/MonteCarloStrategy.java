@@ -0,0 +1,122 @@
+package com.boxboxjason.games._2048.solver;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Picks the direction whose random playouts reach the best mean final score.
+ *
+ * <p>The playouts of each direction are split into one task per pool worker. Every task gets its
+ * own {@link SplittableRandom#split()} stream and its own boards, so workers share no mutable
+ * state; for a given seed the choice does not depend on the scheduling.
+ */
+public class MonteCarloStrategy implements Strategy {
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  private final int playoutsPerMove;
+  private final SplittableRandom random;
+  private final ForkJoinPool pool;
+  private long totalPlayouts;
+  private long totalNanos;
+  private double lastPlayoutsPerSecond;
+
+  public MonteCarloStrategy(int playoutsPerMove) {
+    this(playoutsPerMove, new SplittableRandom(), ForkJoinPool.commonPool());
+  }
+
+  public MonteCarloStrategy(int playoutsPerMove, SplittableRandom random, ForkJoinPool pool) {
+    if (playoutsPerMove < 1) {
+      throw new IllegalArgumentException("At least one playout per move is required");
+    }
+    this.playoutsPerMove = playoutsPerMove;
+    this.random = random;
+    this.pool = pool;
+  }
+
+  @Override
+  public Direction chooseMove(Grid grid) {
+    int size = grid.getSize();
+    byte[] cells = new byte[size * size];
+    grid.copyCells(cells);
+    return chooseMove(cells, size);
+  }
+
+  public Direction chooseMove(byte[] cells, int size) {
+    return Strategy.best(evaluateMoves(cells, size));
+  }
+
+  /**
+   * Returns the mean score each direction gains until the game ends, indexed by ordinal, NaN
+   * marking the directions in which no tile moves.
+   */
+  public double[] evaluateMoves(byte[] cells, int size) {
+    long start = System.nanoTime();
+    int chunks = Math.min(pool.getParallelism(), playoutsPerMove);
+    double[] values = new double[DIRECTIONS.length];
+    List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+    long playouts = 0;
+    for (Direction direction : DIRECTIONS) {
+      byte[] child = new byte[cells.length];
+      int gain = Grid.slide(cells, child, size, direction);
+      if (gain == Grid.NO_MOVE) {
+        values[direction.ordinal()] = Double.NaN;
+        continue;
+      }
+      values[direction.ordinal()] = gain;
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        int count = playoutsPerMove / chunks + (chunk < playoutsPerMove % chunks ? 1 : 0);
+        SplittableRandom stream = random.split();
+        tasks.add(pool.submit(() -> playChunk(child, size, count, stream)));
+      }
+      playouts += playoutsPerMove;
+    }
+    int task = 0;
+    for (Direction direction : DIRECTIONS) {
+      if (Double.isNaN(values[direction.ordinal()])) {
+        continue;
+      }
+      long total = 0;
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        total += tasks.get(task++).join();
+      }
+      values[direction.ordinal()] += (double) total / playoutsPerMove;
+    }
+    record(playouts, System.nanoTime() - start);
+    return values;
+  }
+
+  // Playouts per second achieved by the last move
+  public double getPlayoutsPerSecond() {
+    return lastPlayoutsPerSecond;
+  }
+
+  // Playouts per second averaged over every move so far
+  public double getAveragePlayoutsPerSecond() {
+    return totalNanos == 0 ? 0.0 : totalPlayouts * 1e9 / totalNanos;
+  }
+
+  public long getTotalPlayouts() {
+    return totalPlayouts;
+  }
+
+  private void record(long playouts, long nanos) {
+    totalPlayouts += playouts;
+    totalNanos += nanos;
+    lastPlayoutsPerSecond = nanos == 0 ? 0.0 : playouts * 1e9 / nanos;
+  }
+
+  private static long playChunk(byte[] afterMove, int size, int count, SplittableRandom random) {
+    byte[] board = new byte[afterMove.length];
+    long total = 0;
+    for (int i = 0; i < count; i++) {
+      System.arraycopy(afterMove, 0, board, 0, board.length);
+      total += Playouts.play(board, size, random);
+    }
+    return total;
+  }
+}
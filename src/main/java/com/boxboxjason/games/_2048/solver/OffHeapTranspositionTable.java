@@ -0,0 +1,138 @@
+package com.boxboxjason.games._2048.solver;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Transposition table in native memory, sized in bytes rather than entries so that it can hold
+ * gigabytes without adding anything for the garbage collector to scan or move.
+ *
+ * <p>The table is split into buckets of 4 entries, each bucket filling one 64-byte cache line. An
+ * entry is two longs, {@code key ^ data} then {@code data}, written without locks like {@link
+ * HeapTranspositionTable}: a slot torn by racing writers fails the key check on probe. The data
+ * word carries the depth, the value and the version of the table it was written in. {@link
+ * #clear()} only bumps that version, so clearing gigabytes is instant; entries from older versions
+ * are never returned and are the first to be replaced.
+ *
+ * <p>The memory is freed by {@link #close()}, which must not race with searches still using the
+ * table.
+ */
+public class OffHeapTranspositionTable implements TranspositionTable, AutoCloseable {
+  private static final int ENTRY_BYTES = 2 * Long.BYTES;
+  private static final int BUCKET_ENTRIES = 4;
+  private static final int BUCKET_BYTES = BUCKET_ENTRIES * ENTRY_BYTES;
+  private static final int VERSION_SHIFT = 48;
+  private static final int DEPTH_SHIFT = 32;
+  private static final long VERSION_LIMIT = 1L << 16;
+  private static final VarHandle LONG = ValueLayout.JAVA_LONG.varHandle();
+
+  private final Arena arena;
+  private final MemorySegment memory;
+  private final long bucketMask;
+  // Starts at 1 so that zeroed memory never matches
+  private volatile long version = 1;
+
+  /**
+   * Allocates a table of at most the given number of bytes, rounded down to a power of two and to
+   * at least one bucket.
+   */
+  public OffHeapTranspositionTable(long bytes) {
+    if (bytes < BUCKET_BYTES) {
+      throw new IllegalArgumentException("The table needs at least " + BUCKET_BYTES + " bytes");
+    }
+    long size = Long.highestOneBit(bytes);
+    this.arena = Arena.ofShared();
+    this.memory = arena.allocate(size, BUCKET_BYTES);
+    this.bucketMask = size / BUCKET_BYTES - 1;
+  }
+
+  @Override
+  public double probe(long key, int depth) {
+    long bucket = bucket(key);
+    long current = version;
+    for (int i = 0; i < BUCKET_ENTRIES; i++) {
+      long offset = bucket + (long) i * ENTRY_BYTES;
+      long data = (long) LONG.getOpaque(memory, offset + Long.BYTES);
+      long check = (long) LONG.getOpaque(memory, offset);
+      if ((check ^ data) == key && versionOf(data) == current) {
+        return depthOf(data) >= depth ? Float.intBitsToFloat((int) data) : Double.NaN;
+      }
+    }
+    return Double.NaN;
+  }
+
+  @Override
+  public void store(long key, int depth, double value) {
+    long bucket = bucket(key);
+    long current = version;
+    // Replace the same key, else an entry from an older version, else the shallowest one
+    long target = -1;
+    int shallowest = Integer.MAX_VALUE;
+    for (int i = 0; i < BUCKET_ENTRIES; i++) {
+      long offset = bucket + (long) i * ENTRY_BYTES;
+      long data = (long) LONG.getOpaque(memory, offset + Long.BYTES);
+      long check = (long) LONG.getOpaque(memory, offset);
+      if (versionOf(data) != current) {
+        if (shallowest > -1) {
+          target = offset;
+          shallowest = -1;
+        }
+      } else if ((check ^ data) == key) {
+        if (depthOf(data) > depth) {
+          return;
+        }
+        target = offset;
+        break;
+      } else if (depthOf(data) < shallowest) {
+        target = offset;
+        shallowest = depthOf(data);
+      }
+    }
+    // Depth is stored + 1 so that a stored entry never has an all-zero data word
+    long data =
+        current << VERSION_SHIFT
+            | (long) (depth + 1) << DEPTH_SHIFT
+            | Float.floatToRawIntBits((float) value) & 0xFFFFFFFFL;
+    LONG.setOpaque(memory, target + Long.BYTES, data);
+    LONG.setOpaque(memory, target, key ^ data);
+  }
+
+  @Override
+  public void clear() {
+    long next = version + 1;
+    if (next == VERSION_LIMIT) {
+      // Versions are about to repeat: entries this old must not come back to life
+      memory.fill((byte) 0);
+      next = 1;
+    }
+    version = next;
+  }
+
+  // Number of entries the table holds
+  public long capacity() {
+    return (bucketMask + 1) * BUCKET_ENTRIES;
+  }
+
+  public long byteSize() {
+    return memory.byteSize();
+  }
+
+  @Override
+  public void close() {
+    arena.close();
+  }
+
+  private long bucket(long key) {
+    return ((key ^ key >>> 29) & bucketMask) * BUCKET_BYTES;
+  }
+
+  private static long versionOf(long data) {
+    return data >>> VERSION_SHIFT;
+  }
+
+  private static int depthOf(long data) {
+    return (int) (data >>> DEPTH_SHIFT & 0xFFFF) - 1;
+  }
+}
@@ -0,0 +1,33 @@
+package com.boxboxjason.games._2048.solver;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import java.util.random.RandomGenerator;
+
+/** Plays a uniformly random legal move. Not thread-safe: use one instance per thread. */
+public class RandomStrategy implements Strategy {
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  private final RandomGenerator random;
+  private byte[] scratch = new byte[0];
+
+  public RandomStrategy(RandomGenerator random) {
+    this.random = random;
+  }
+
+  @Override
+  public Direction chooseMove(Grid grid) {
+    int size = grid.getSize();
+    if (scratch.length != size * size) {
+      scratch = new byte[size * size];
+    }
+    Direction[] legal = new Direction[DIRECTIONS.length];
+    int count = 0;
+    for (Direction direction : DIRECTIONS) {
+      if (grid.preview(direction, scratch) != Grid.NO_MOVE) {
+        legal[count++] = direction;
+      }
+    }
+    return count == 0 ? null : legal[random.nextInt(count)];
+  }
+}
@@ -0,0 +1,22 @@
+package com.boxboxjason.games._2048.solver;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+
+/** Picks the next move for a game; implementations must not modify the grid. */
+public interface Strategy {
+  // Returns null when no direction moves any tile
+  Direction chooseMove(Grid grid);
+
+  // Direction with the highest value, indexed by ordinal; NaN values mark illegal directions
+  static Direction best(double[] values) {
+    Direction best = null;
+    for (Direction direction : Direction.values()) {
+      double value = values[direction.ordinal()];
+      if (!Double.isNaN(value) && (best == null || value > values[best.ordinal()])) {
+        best = direction;
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,11 @@
+package com.boxboxjason.games._2048.solver;
+
+/** Cache of search results keyed by board hash, shared by concurrent search threads. */
+public interface TranspositionTable {
+  // Returns the value stored for key by a search at least depth deep, or NaN if there is none
+  double probe(long key, int depth);
+
+  void store(long key, int depth, double value);
+
+  void clear();
+}
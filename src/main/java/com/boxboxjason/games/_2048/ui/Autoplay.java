@@ -0,0 +1,140 @@
+package com.boxboxjason.games._2048.ui;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import com.boxboxjason.games._2048.solver.AnytimeSearch;
+import com.boxboxjason.games._2048.solver.Deadline;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Lets the search play a grid on its own thread at a chosen rate, from one move per second up to
+ * as fast as it can.
+ *
+ * <p>While running, the worker owns the grid: it searches, moves and reports each resulting board
+ * to a frame listener, and nothing else may touch the grid until {@link #stop()} returns. Each move
+ * gets half of its time slot to search, so slower rates also play better. Playing as fast as
+ * possible skips the search: each move is the best one by static evaluation.
+ */
+final class Autoplay implements AutoCloseable {
+  // Rate meaning no pause between moves
+  static final double AS_FAST_AS_POSSIBLE = 0;
+
+  private static final Duration MAX_BUDGET = Duration.ofMillis(250);
+
+  private final AnytimeSearch search;
+  private final Executor publisher;
+  private volatile double movesPerSecond;
+  private volatile long moves;
+  private Deadline session;
+  private Thread worker;
+
+  Autoplay(AnytimeSearch search, double movesPerSecond, Executor publisher) {
+    this.search = search;
+    this.publisher = publisher;
+    setRate(movesPerSecond);
+  }
+
+  // Takes effect from the next move
+  void setRate(double movesPerSecond) {
+    if (movesPerSecond < 0 || Double.isNaN(movesPerSecond)) {
+      throw new IllegalArgumentException("The move rate must not be negative");
+    }
+    this.movesPerSecond = movesPerSecond;
+  }
+
+  double getRate() {
+    return movesPerSecond;
+  }
+
+  boolean isRunning() {
+    return worker != null && worker.isAlive();
+  }
+
+  // Moves played since the last start
+  long getMoves() {
+    return moves;
+  }
+
+  /**
+   * Starts playing the grid. {@code frames} receives a copy of the board and the score after
+   * every move, on the worker thread; {@code onGameOver} runs through the publisher once no move
+   * is left, unless stopped first.
+   */
+  void start(Grid grid, BiConsumer<int[][], Integer> frames, Runnable onGameOver) {
+    stop();
+    Deadline playSession = Deadline.none();
+    session = playSession;
+    moves = 0;
+    worker = new Thread(() -> play(grid, frames, onGameOver, playSession), "autoplay");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  // Stops playing and waits for the move in progress, after which the grid is free again
+  void stop() {
+    if (worker == null) {
+      return;
+    }
+    session.cancel();
+    worker.interrupt();
+    boolean interrupted = false;
+    while (worker.isAlive()) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    worker = null;
+    session = null;
+  }
+
+  @Override
+  public void close() {
+    stop();
+  }
+
+  private void play(
+      Grid grid, BiConsumer<int[][], Integer> frames, Runnable onGameOver, Deadline playSession) {
+    long due = System.nanoTime();
+    while (!playSession.isCancelled()) {
+      double rate = movesPerSecond;
+      long interval = rate == AS_FAST_AS_POSSIBLE ? 0 : (long) (1e9 / rate);
+      Direction move = search.search(grid, playSession.within(budget(interval))).move();
+      if (playSession.isCancelled()) {
+        return;
+      }
+      if (move == null) {
+        publisher.execute(
+            () -> {
+              if (!playSession.isCancelled()) {
+                onGameOver.run();
+              }
+            });
+        return;
+      }
+      grid.moveAndAddTile(move);
+      moves++;
+      frames.accept(grid.getGrid(), grid.getScore());
+
+      // Pace from the previous due time, but never try to catch up on a late move with a burst
+      due = Math.max(due + interval, System.nanoTime());
+      long wait;
+      while ((wait = due - System.nanoTime()) > 0 && !playSession.isCancelled()) {
+        LockSupport.parkNanos(wait);
+      }
+    }
+  }
+
+  // Half of the interval, so that searching never holds the next move back; none without a pause
+  static Duration budget(long intervalNanos) {
+    Duration half = Duration.ofNanos(intervalNanos / 2);
+    return half.compareTo(MAX_BUDGET) > 0 ? MAX_BUDGET : half;
+  }
+}
@@ -1,9 +1,14 @@
 package com.boxboxjason.games._2048.ui;
 
+import com.boxboxjason.games._2048.Board;
 import com.boxboxjason.games._2048.Direction;
-import com.boxboxjason.games._2048.Grid;
 import com.boxboxjason.games._2048.Score;
+import com.boxboxjason.games._2048.Zobrist;
+import com.boxboxjason.games._2048.solver.AnytimeSearch;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.scene.control.TextInputDialog;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.StackPane;
@@ -16,21 +21,59 @@ import javafx.scene.text.TextAlignment;
 public class GamePanel extends StackPane {
   private static final int GRID_GAP = 10;
 
-  private Grid gameGrid;
+  private Board gameGrid;
   private GridPane gridPane;
   private double currentTileSize;
   private Consumer<Score> onGameOver;
   private boolean gameOver = false;
   private Consumer<Integer> onScoreChange;
+  private final HintService hints =
+      new HintService(
+          new AnytimeSearch(HintService.DEFAULT_BUDGET),
+          HintService.DEFAULT_BUDGET,
+          Platform::runLater);
+  private final Text hintArrow = new Text();
+  private boolean hintsEnabled = false;
+  // Tile nodes reused by every render, rebuilt only when the grid or tile size changes
+  private Rectangle[] tiles = new Rectangle[0];
+  private Text[] labels = new Text[0];
+  private int renderedSize;
+  private double renderedTileSize;
+  // While live, another thread owns the board and publishes frames; the latest one is drawn and
+  // cleared on the next pulse
+  private boolean live = false;
+  private final AtomicReference<Frame> pendingFrame = new AtomicReference<>();
+  private Frame lastFrame;
+  private final AnimationTimer frameTimer =
+      new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+          Frame frame = pendingFrame.getAndSet(null);
+          if (frame != null) {
+            lastFrame = frame;
+            render(frame.values());
+            if (onScoreChange != null) {
+              onScoreChange.accept(frame.score());
+            }
+          }
+        }
+      };
+
+  private record Frame(int[][] values, int score) {}
 
-  public GamePanel(Grid gameGrid) {
+  public GamePanel(Board gameGrid) {
     this.gameGrid = gameGrid;
     this.gridPane = new GridPane();
     gridPane.setHgap(GRID_GAP);
     gridPane.setVgap(GRID_GAP);
     gridPane.setStyle("-fx-background-color: #bbada0;");
 
-    getChildren().add(gridPane);
+    // Drawn over the tiles, never in the way of the grid's input
+    hintArrow.setFill(Color.rgb(45, 24, 16, 0.6));
+    hintArrow.setMouseTransparent(true);
+    hintArrow.setVisible(false);
+
+    getChildren().addAll(gridPane, hintArrow);
   }
 
   public void resizeGrid(double availableSize) {
@@ -47,6 +90,7 @@ public class GamePanel extends StackPane {
 
     // Recalculate actual grid size with rounded tile size
     double actualGridSize = (currentTileSize * gridSize) + totalGapSize;
+    hintArrow.setFont(Font.font("Arial", actualGridSize / 2));
 
     // Constrain gridPane to the computed square so it will be centered by StackPane
     gridPane.setMinWidth(actualGridSize);
@@ -60,35 +104,104 @@ public class GamePanel extends StackPane {
   }
 
   public void updateGrid() {
-    gridPane.getChildren().clear();
-    int[][] grid = gameGrid.getGrid();
-    for (int row = 0; row < gameGrid.getSize(); row++) {
-      for (int col = 0; col < gameGrid.getSize(); col++) {
-        Rectangle tile = new Rectangle(currentTileSize, currentTileSize);
+    if (live) {
+      // The board belongs to another thread: redraw what it last published
+      if (lastFrame != null) {
+        render(lastFrame.values());
+      }
+      return;
+    }
+    render(gameGrid.getGrid());
+  }
+
+  /**
+   * Hands the board over to another thread, which then reports it through {@link #publishFrame}
+   * instead of the panel reading it; player moves and hints are suspended until it is handed back.
+   */
+  public void setLive(boolean live) {
+    if (this.live == live) {
+      return;
+    }
+    this.live = live;
+    if (live) {
+      hints.cancel();
+      hintArrow.setVisible(false);
+      frameTimer.start();
+    } else {
+      frameTimer.stop();
+      pendingFrame.set(null);
+      lastFrame = null;
+      updateGrid();
+      refreshHint();
+      if (onScoreChange != null) {
+        onScoreChange.accept(gameGrid.getScore());
+      }
+    }
+  }
+
+  /**
+   * Queues a board to be drawn on the next pulse while live; safe to call from any thread. Frames
+   * published faster than the display refreshes replace each other, so at most one is drawn per
+   * pulse.
+   */
+  public void publishFrame(int[][] values, int score) {
+    pendingFrame.set(new Frame(values, score));
+  }
+
+  // Draws the values into the tile nodes, only rebuilding them when the grid size or tile size
+  // changed since the last call
+  private void render(int[][] grid) {
+    int size = grid.length;
+    if (size != renderedSize || currentTileSize != renderedTileSize) {
+      buildTiles(size);
+    }
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
         int value = grid[row][col];
+        Rectangle tile = tiles[row * size + col];
+        Text text = labels[row * size + col];
         if (value == 0) {
           tile.setFill(Color.LIGHTGRAY);
-        } else {
-          tile.setFill(getTileColor(value));
+          text.setVisible(false);
+          continue;
         }
-
-        gridPane.add(tile, col, row);
-
-        if (value != 0) {
-          Text text = new Text(String.valueOf(value));
-          // Scale font size based on number of digits
-          double fontSize = calculateFontSize(value);
-          text.setFont(Font.font("Arial", fontSize));
+        tile.setFill(getTileColor(value));
+        String label = String.valueOf(value);
+        if (!label.equals(text.getText())) {
+          if (label.length() != text.getText().length()) {
+            // Scale font size based on number of digits
+            text.setFont(Font.font("Arial", calculateFontSize(value)));
+          }
+          text.setText(label);
           text.setFill(getTextColor(value));
-          text.setTextAlignment(TextAlignment.CENTER);
+        }
+        text.setVisible(true);
+      }
+    }
+  }
 
-          GridPane.setHalignment(text, javafx.geometry.HPos.CENTER);
-          GridPane.setValignment(text, javafx.geometry.VPos.CENTER);
+  private void buildTiles(int size) {
+    gridPane.getChildren().clear();
+    tiles = new Rectangle[size * size];
+    labels = new Text[size * size];
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        Rectangle tile = new Rectangle(currentTileSize, currentTileSize);
+        Text text = new Text();
+        text.setTextAlignment(TextAlignment.CENTER);
+        text.setVisible(false);
 
-          gridPane.add(text, col, row);
-        }
+        GridPane.setHalignment(text, javafx.geometry.HPos.CENTER);
+        GridPane.setValignment(text, javafx.geometry.VPos.CENTER);
+
+        gridPane.add(tile, col, row);
+        gridPane.add(text, col, row);
+        tiles[row * size + col] = tile;
+        labels[row * size + col] = text;
       }
     }
+    renderedSize = size;
+    renderedTileSize = currentTileSize;
   }
 
   private double calculateFontSize(int value) {
@@ -141,46 +254,64 @@ public class GamePanel extends StackPane {
   }
 
   public boolean moveGrid(Direction direction) {
-    if (gameOver) {
+    if (gameOver || live) {
       return false;
     }
     boolean moved = gameGrid.moveAndAddTile(direction);
     updateGrid();
+    refreshHint();
     if (onScoreChange != null) {
       onScoreChange.accept(gameGrid.getScore());
     }
-    if (!moved && !gameGrid.hasValidMoves()) {
-      // Game over
-      gameOver = true;
-      TextInputDialog dialog = new TextInputDialog("Player");
-      dialog.setTitle("Game Over");
-      dialog.setHeaderText("Final Score: " + gameGrid.getScore());
-      dialog.setContentText("Enter your name:");
-      dialog
-          .showAndWait()
-          .ifPresent(
-              username -> {
-                if (!username.trim().isEmpty()) {
-                  Score score = new Score(
-                      username.trim(),
-                      gameGrid.getScore(),
-                      gameGrid.getSize(),
-                      gameGrid.getDuration());
-                  if (onGameOver != null) {
-                    onGameOver.accept(score);
-                  }
-                }
-              });
+    if (!moved) {
+      endGameIfOver();
     }
     return moved;
   }
 
-  public Grid getGameGrid() {
+  // Redraws the board, hint and score after the grid changed other than by a move
+  public void refreshBoard() {
+    updateGrid();
+    refreshHint();
+    if (onScoreChange != null) {
+      onScoreChange.accept(gameGrid.getScore());
+    }
+  }
+
+  // Ends the game, asking for the player's name, if no move is left
+  public void endGameIfOver() {
+    if (gameOver || gameGrid.hasValidMoves()) {
+      return;
+    }
+    gameOver = true;
+    TextInputDialog dialog = new TextInputDialog("Player");
+    dialog.setTitle("Game Over");
+    dialog.setHeaderText("Final Score: " + gameGrid.getScore());
+    dialog.setContentText("Enter your name:");
+    dialog
+        .showAndWait()
+        .ifPresent(
+            username -> {
+              if (!username.trim().isEmpty()) {
+                Score score = new Score(
+                    username.trim(),
+                    gameGrid.getScore(),
+                    gameGrid.getSize(),
+                    gameGrid.getDuration());
+                if (onGameOver != null) {
+                  onGameOver.accept(score);
+                }
+              }
+            });
+  }
+
+  public Board getGameGrid() {
     return gameGrid;
   }
 
-  public void setGameGrid(Grid gameGrid) {
+  public void setGameGrid(Board gameGrid) {
     this.gameGrid = gameGrid;
+    refreshHint();
   }
 
   public void setOnGameOver(Consumer<Score> onGameOver) {
@@ -193,9 +324,64 @@ public class GamePanel extends StackPane {
 
   public void resetGame() {
     gameOver = false;
-    updateGrid();
-    if (onScoreChange != null) {
-      onScoreChange.accept(gameGrid.getScore());
+    refreshBoard();
+  }
+
+  public boolean isHintsEnabled() {
+    return hintsEnabled;
+  }
+
+  // While enabled, the recommended direction is shown and recomputed after every move
+  public void setHintsEnabled(boolean enabled) {
+    hintsEnabled = enabled;
+    refreshHint();
+  }
+
+  // Stops the hint search; call when the panel is discarded
+  public void shutdown() {
+    hints.close();
+  }
+
+  // Cancels the search for the previous board and, if hints are on, starts one for the current
+  public void refreshHint() {
+    hints.cancel();
+    hintArrow.setVisible(false);
+    if (!hintsEnabled || gameOver || live) {
+      return;
+    }
+    byte[] cells = boardExponents();
+    long key = Zobrist.hash(cells, gameGrid.getSize());
+    hints.request(
+        cells,
+        gameGrid.getSize(),
+        key,
+        () -> Zobrist.hash(boardExponents(), gameGrid.getSize()),
+        this::showHint);
+  }
+
+  private void showHint(Direction direction) {
+    hintArrow.setText(
+        switch (direction) {
+          case UP -> "\u2191";
+          case RIGHT -> "\u2192";
+          case DOWN -> "\u2193";
+          case LEFT -> "\u2190";
+        });
+    hintArrow.setVisible(true);
+  }
+
+  // Snapshot of the board as exponents, the representation the searches work on
+  private byte[] boardExponents() {
+    int size = gameGrid.getSize();
+    int[][] grid = gameGrid.getGrid();
+    byte[] cells = new byte[size * size];
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        int value = grid[row][col];
+        int exponent = value == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(value);
+        cells[row * size + col] = (byte) exponent;
+      }
     }
+    return cells;
   }
 }
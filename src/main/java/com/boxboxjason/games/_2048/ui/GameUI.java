@@ -3,11 +3,14 @@ package com.boxboxjason.games._2048.ui;
 import com.boxboxjason.games._2048.Direction;
 import com.boxboxjason.games._2048.Grid;
 import com.boxboxjason.games._2048.ScoreManager;
+import com.boxboxjason.games._2048.solver.AnytimeSearch;
+import java.time.Duration;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.Spinner;
 import javafx.scene.control.ToggleButton;
@@ -22,6 +25,12 @@ import javafx.stage.Stage;
 public class GameUI extends Application {
 
   private static final Color BACKGROUND_COLOR = Color.web("#2d1810");
+  // Autoplay speeds in moves per second, the last one playing as fast as possible
+  private static final double[] AUTOPLAY_RATES = {
+    1, 2, 5, 10, 30, 60, 1000, Autoplay.AS_FAST_AS_POSSIBLE
+  };
+  // Undo history of the player's game, thousands of 4x4 moves
+  private static final int UNDO_MEMORY_BYTES = 64 * 1024;
 
   private Grid gameGrid;
   private ScoreManager scoreManager;
@@ -33,10 +42,16 @@ public class GameUI extends Application {
   private BorderPane root;
   private Label scoreLabel;
   private HBox bottomBox;
+  private final Autoplay autoplay =
+      new Autoplay(
+          new AnytimeSearch(Duration.ofMillis(250)), AUTOPLAY_RATES[0], Platform::runLater);
+  private ToggleButton autoplayButton;
+  private boolean autoplaying = false;
 
   @Override
   public void start(Stage primaryStage) {
     gameGrid = new Grid(4);
+    gameGrid.setUndoMemoryLimit(UNDO_MEMORY_BYTES);
     scoreManager = new ScoreManager();
 
     // Create panels
@@ -99,13 +114,36 @@ public class GameUI extends Application {
     gridSizeBox.setAlignment(Pos.CENTER);
     gridSizeBox.getChildren().addAll(gridSizeLabel, gridSizeSpinner);
 
+    // Autoplay toggle and speed picker
+    autoplayButton = new ToggleButton("AUTO");
+    autoplayButton.setFocusTraversable(false);
+    autoplayButton.setStyle(
+        "-fx-background-color: #8b4513; -fx-text-fill: #f4e4bc; -fx-font-weight: bold; "
+            + "-fx-border-color: #654321; -fx-border-width: 3; -fx-border-style: solid;");
+    autoplayButton.setOnAction(e -> setAutoplay(autoplayButton.isSelected()));
+    ChoiceBox<String> rateChoice = new ChoiceBox<>();
+    for (double rate : AUTOPLAY_RATES) {
+      rateChoice
+          .getItems()
+          .add(rate == Autoplay.AS_FAST_AS_POSSIBLE ? "Max" : (int) rate + " / s");
+    }
+    rateChoice.getSelectionModel().selectFirst();
+    rateChoice.setFocusTraversable(false);
+    rateChoice
+        .getSelectionModel()
+        .selectedIndexProperty()
+        .addListener((obs, oldVal, newVal) -> autoplay.setRate(AUTOPLAY_RATES[newVal.intValue()]));
+    VBox autoplayBox = new VBox(5);
+    autoplayBox.setAlignment(Pos.CENTER);
+    autoplayBox.getChildren().addAll(autoplayButton, rateChoice);
+
     bottomBox = new HBox(40);
     bottomBox.setAlignment(Pos.CENTER);
     bottomBox.setPadding(new Insets(15));
     bottomBox.setMinHeight(60); // Ensure minimum height for proper display
     bottomBox.setStyle(
         "-fx-background-color: #2d1810; -fx-border-color: #1a0f08; -fx-border-width: 2;");
-    bottomBox.getChildren().addAll(scoreLabel, gridSizeBox);
+    bottomBox.getChildren().addAll(scoreLabel, gridSizeBox, autoplayBox);
 
     // Main layout
     root = new BorderPane();
@@ -133,6 +171,10 @@ public class GameUI extends Application {
               case DOWN -> gamePanel.moveGrid(Direction.DOWN);
               case LEFT -> gamePanel.moveGrid(Direction.LEFT);
               case RIGHT -> gamePanel.moveGrid(Direction.RIGHT);
+              case H -> gamePanel.setHintsEnabled(!gamePanel.isHintsEnabled());
+              case A -> setAutoplay(!autoplaying);
+              case Z -> stepHistory(false);
+              case Y -> stepHistory(true);
               default -> {
                 // No action needed for other keys
               }
@@ -162,6 +204,45 @@ public class GameUI extends Application {
     Platform.runLater(() -> resizePanels(scene.getWidth(), scene.getHeight()));
   }
 
+  @Override
+  public void stop() {
+    autoplay.close();
+    gamePanel.shutdown();
+    scoreManager.close();
+  }
+
+  // The autoplay thread owns the grid while it runs; the panel only draws what it publishes
+  private void setAutoplay(boolean enabled) {
+    autoplayButton.setSelected(enabled);
+    if (enabled == autoplaying) {
+      return;
+    }
+    if (enabled) {
+      autoplaying = true;
+      gamePanel.setLive(true);
+      autoplay.start(gameGrid, gamePanel::publishFrame, () -> finishAutoplay(true));
+    } else {
+      finishAutoplay(false);
+    }
+  }
+
+  // Undoes or redoes the player's last move; the grid is not ours to change while autoplaying
+  private void stepHistory(boolean forward) {
+    if (!autoplaying && (forward ? gameGrid.redo() : gameGrid.undo())) {
+      gamePanel.refreshBoard();
+    }
+  }
+
+  private void finishAutoplay(boolean gameOver) {
+    autoplay.stop();
+    autoplaying = false;
+    autoplayButton.setSelected(false);
+    gamePanel.setLive(false);
+    if (gameOver) {
+      gamePanel.endGameIfOver();
+    }
+  }
+
   private void showGamePanel() {
     centerPane.getChildren().clear();
     centerPane.getChildren().add(gamePanel);
@@ -188,8 +269,10 @@ public class GameUI extends Application {
   }
 
   private void changeGridSize(int newSize) {
+    setAutoplay(false);
     gameGrid.reinit(newSize);
     resizePanels(scene.getWidth(), scene.getHeight());
+    gamePanel.refreshHint();
     scoresPanel.setCurrentGridSize(newSize);
     root.requestFocus();
   }
@@ -0,0 +1,81 @@
+package com.boxboxjason.games._2048.ui;
+
+import com.boxboxjason.games._2048.Direction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded map from board hash to recommended move, filled speculatively for the positions that
+ * may follow the current board.
+ *
+ * <p>Entries are tagged with the generation they were computed for. {@link #advance(long)} starts
+ * a new generation when the real board moves on, keeping only the entry for the new board, and
+ * writes still tagged with an older generation are discarded.
+ */
+final class HintCache {
+  private final int capacity;
+  private final ConcurrentHashMap<Long, Direction> entries = new ConcurrentHashMap<>();
+  private final AtomicInteger generation = new AtomicInteger();
+  private long hits;
+  private long misses;
+
+  HintCache(int capacity) {
+    this.capacity = capacity;
+  }
+
+  int generation() {
+    return generation.get();
+  }
+
+  Direction get(long key) {
+    Direction move = entries.get(key);
+    if (move == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return move;
+  }
+
+  boolean contains(long key) {
+    return entries.containsKey(key);
+  }
+
+  // Returns false if the cache is full or the generation has moved on
+  boolean put(long key, Direction move, int forGeneration) {
+    if (entries.size() >= capacity || generation.get() != forGeneration) {
+      return false;
+    }
+    entries.put(key, move);
+    // The board may have moved on while storing; advance() might have missed this entry
+    if (generation.get() != forGeneration) {
+      entries.remove(key);
+      return false;
+    }
+    return true;
+  }
+
+  // The real board is now key: everything speculated from earlier boards is stale
+  int advance(long key) {
+    int next = generation.incrementAndGet();
+    Direction kept = entries.get(key);
+    entries.clear();
+    if (kept != null) {
+      entries.put(key, kept);
+    }
+    return next;
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  // Lookups are made from the FX thread only, so the counters need no synchronisation
+  long hits() {
+    return hits;
+  }
+
+  long misses() {
+    return misses;
+  }
+}
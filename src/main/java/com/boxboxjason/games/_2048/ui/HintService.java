@@ -0,0 +1,168 @@
+package com.boxboxjason.games._2048.ui;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import com.boxboxjason.games._2048.Zobrist;
+import com.boxboxjason.games._2048.solver.AnytimeSearch;
+import com.boxboxjason.games._2048.solver.Deadline;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Computes move hints on a background thread so the search never blocks the JavaFX Application
+ * Thread.
+ *
+ * <p>Requests and cancellations come from the FX thread. Only one search runs at a time: a new
+ * request cancels the previous one. A result is handed to the publisher (Platform.runLater in the
+ * game) and delivered only if, by then, no newer request or cancellation has happened and the
+ * board key still matches the one the search started from.
+ *
+ * <p>Once the hint is out, the worker uses the player's idle time to search the boards that can
+ * follow (every legal move, then every spawn, likeliest first) into a {@link HintCache}, so the
+ * hint for the next board is usually ready before it is asked for.
+ */
+final class HintService implements AutoCloseable {
+  static final Duration DEFAULT_BUDGET = Duration.ofMillis(300);
+  static final int DEFAULT_CACHE_CAPACITY = 512;
+
+  private static final Direction[] DIRECTIONS = Direction.values();
+  // Successors are searched with a fraction of the budget: there are dozens of them
+  private static final int SPECULATION_DIVISOR = 4;
+
+  private final AnytimeSearch search;
+  private final Duration budget;
+  private final Executor publisher;
+  private final HintCache cache = new HintCache(DEFAULT_CACHE_CAPACITY);
+  private final ExecutorService worker =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "hint-search");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private Deadline session;
+  private Future<?> pending;
+
+  HintService(AnytimeSearch search, Duration budget, Executor publisher) {
+    this.search = search;
+    this.budget = budget;
+    this.publisher = publisher;
+  }
+
+  /**
+   * Starts searching the board given as exponents. {@code onHint} runs through the publisher with
+   * the recommended direction, unless {@code currentKey} no longer returns {@code key} by then. A
+   * board that was searched speculatively is answered at once, on the calling thread.
+   */
+  void request(
+      byte[] cells, int size, long key, LongSupplier currentKey, Consumer<Direction> onHint) {
+    cancel();
+    int generation = cache.advance(key);
+    Deadline requestSession = Deadline.none();
+    byte[] snapshot = cells.clone();
+    Direction cached = cache.get(key);
+    if (cached != null) {
+      onHint.accept(cached);
+    }
+    session = requestSession;
+    pending =
+        worker.submit(
+            () -> {
+              double[] values = null;
+              if (cached == null) {
+                AnytimeSearch.Result result =
+                    search.search(snapshot, size, requestSession.within(budget));
+                if (result.move() == null || requestSession.isCancelled()) {
+                  return;
+                }
+                values = result.values();
+                cache.put(key, result.move(), generation);
+                publisher.execute(
+                    () -> {
+                      if (!requestSession.isCancelled() && currentKey.getAsLong() == key) {
+                        onHint.accept(result.move());
+                      }
+                    });
+              }
+              speculate(snapshot, size, values, requestSession, generation);
+            });
+  }
+
+  void cancel() {
+    if (session != null) {
+      session.cancel();
+      pending.cancel(false);
+      session = null;
+      pending = null;
+    }
+  }
+
+  HintCache getCache() {
+    return cache;
+  }
+
+  @Override
+  public void close() {
+    cancel();
+    worker.shutdownNow();
+  }
+
+  // Fills the cache with the hints of the boards that can follow, until cancelled or full
+  private void speculate(
+      byte[] cells, int size, double[] values, Deadline requestSession, int generation) {
+    Duration share = budget.dividedBy(SPECULATION_DIVISOR);
+    byte[] child = new byte[cells.length];
+    byte[] next = new byte[cells.length];
+    for (Direction direction : byLikelihood(values)) {
+      if (Grid.slide(cells, child, size, direction) == Grid.NO_MOVE) {
+        continue;
+      }
+      // A 2 spawns nine times out of ten, so all the 2s come before any 4
+      for (byte spawn = 1; spawn <= 2; spawn++) {
+        for (int cell = 0; cell < child.length; cell++) {
+          if (child[cell] != 0) {
+            continue;
+          }
+          if (requestSession.isCancelled()) {
+            return;
+          }
+          System.arraycopy(child, 0, next, 0, child.length);
+          next[cell] = spawn;
+          long key = Zobrist.hash(next, size);
+          if (cache.contains(key)) {
+            continue;
+          }
+          Direction move = search.search(next, size, requestSession.within(share)).move();
+          if (move != null
+              && !requestSession.isCancelled()
+              && !cache.put(key, move, generation)) {
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  // Directions from the most to the least promising, in declaration order when values are unknown
+  private static Direction[] byLikelihood(double[] values) {
+    Direction[] ordered = DIRECTIONS.clone();
+    if (values != null) {
+      Arrays.sort(
+          ordered,
+          Comparator.comparingDouble(
+              (Direction direction) -> {
+                double value = values[direction.ordinal()];
+                return Double.isNaN(value) ? Double.NEGATIVE_INFINITY : value;
+              })
+              .reversed());
+    }
+    return ordered;
+  }
+}
@@ -0,0 +1,303 @@
+package com.boxboxjason.games._2048;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/** Test suite for the 4x4 BitBoard engine. */
+@DisplayName("BitBoard Test Suite")
+class BitBoardTest {
+  private BitBoard board;
+
+  @BeforeEach
+  void setUp() {
+    board = new BitBoard();
+  }
+
+  @Nested
+  @DisplayName("Board Contract Tests")
+  class ContractTests {
+
+    @Test
+    @DisplayName("Should start with exactly 2 tiles of value 2 or 4")
+    void testInitialTiles() {
+      int tileCount = 0;
+      for (int[] row : board.getGrid()) {
+        for (int cell : row) {
+          if (cell != 0) {
+            assertTrue(cell == 2 || cell == 4);
+            tileCount++;
+          }
+        }
+      }
+      assertEquals(2, tileCount);
+      assertEquals(4, board.getSize());
+      assertEquals(0, board.getScore());
+    }
+
+    @Test
+    @DisplayName("Should reject sizes other than 4")
+    void testReinitRejectsOtherSizes() {
+      IllegalArgumentException exception =
+          assertThrows(IllegalArgumentException.class, () -> board.reinit(5));
+      assertEquals("BitBoard only supports a grid size of 4", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should move the tiles set through setGrid()")
+    void testSetGrid() {
+      int[][] gridArray = board.getGrid();
+      clearGrid(gridArray);
+      gridArray[0][0] = 2;
+      gridArray[0][1] = 2;
+      gridArray[0][2] = 4;
+      gridArray[0][3] = 4;
+      board.setGrid(gridArray);
+
+      assertTrue(board.move(Direction.LEFT));
+
+      assertArrayEquals(new int[] {4, 8, 0, 0}, board.getGrid()[0]);
+      assertEquals(12, board.getScore());
+    }
+
+    @Test
+    @DisplayName("Should round values that are not powers of two down, like Grid")
+    void testSetGridRoundsDown() {
+      int[][] gridArray = board.getGrid();
+      clearGrid(gridArray);
+      gridArray[0][0] = 6;
+      gridArray[1][1] = 3;
+      gridArray[2][2] = 1000;
+      board.setGrid(gridArray);
+      Grid grid = new Grid(4, 1L);
+      grid.setGrid(gridArray);
+
+      assertEquals(4, board.getGrid()[0][0]);
+      assertEquals(2, board.getGrid()[1][1]);
+      assertEquals(512, board.getGrid()[2][2]);
+      assertArrayEquals(grid.getGrid(), board.getGrid());
+    }
+
+    @Test
+    @DisplayName("Should hand out copies from getGrid()")
+    void testGetGridReturnsCopy() {
+      int[][] gridArray = board.getGrid();
+      long packed = board.getBoard();
+      clearGrid(gridArray);
+
+      assertEquals(packed, board.getBoard());
+      assertNotSame(gridArray, board.getGrid());
+    }
+
+    @Test
+    @DisplayName("Should not move when tiles are already packed")
+    void testNoMove() {
+      int[][] gridArray = board.getGrid();
+      clearGrid(gridArray);
+      gridArray[0][0] = 2;
+      gridArray[1][0] = 4;
+      board.setGrid(gridArray);
+
+      assertFalse(board.moveAndAddTile(Direction.LEFT));
+      assertEquals(2, countNonZeroTiles(board.getGrid()));
+    }
+
+    @Test
+    @DisplayName("Should detect full boards and game over")
+    void testFullAndGameOver() {
+      int[][] gridArray = board.getGrid();
+      for (int i = 0; i < 4; i++) {
+        for (int j = 0; j < 4; j++) {
+          gridArray[i][j] = (i + j) % 2 == 0 ? 2 : 4;
+        }
+      }
+      board.setGrid(gridArray);
+      assertTrue(board.isFull());
+      assertFalse(board.hasValidMoves());
+
+      gridArray[3][2] = 2;
+      gridArray[3][3] = 2;
+      board.setGrid(gridArray);
+      assertTrue(board.hasValidMoves());
+
+      gridArray[3][3] = 0;
+      board.setGrid(gridArray);
+      assertFalse(board.isFull());
+      assertTrue(board.hasValidMoves());
+    }
+
+    @Test
+    @DisplayName("Should refuse to spawn on a full board")
+    void testSpawnOnFullBoard() {
+      board.setBoard(0x1111111111111111L);
+      assertThrows(IllegalStateException.class, () -> board.addRandomTile());
+    }
+
+    @Test
+    @DisplayName("Should replay the same game from the same seed")
+    void testSeededReplay() {
+      BitBoard first = new BitBoard(99L);
+      BitBoard second = new BitBoard(99L);
+      for (int i = 0; i < 200 && first.hasValidMoves(); i++) {
+        Direction direction = Direction.values()[i % 4];
+        assertEquals(first.moveAndAddTile(direction), second.moveAndAddTile(direction));
+        assertEquals(first.getBoard(), second.getBoard());
+      }
+    }
+
+    @Test
+    @DisplayName("Should play until no moves are left")
+    void testPlayout() {
+      Direction[] directions = Direction.values();
+      int moves = 0;
+      while (board.hasValidMoves() && moves < 100_000) {
+        board.moveAndAddTile(directions[moves % directions.length]);
+        moves++;
+      }
+      assertFalse(board.hasValidMoves());
+      assertTrue(board.getScore() > 0);
+    }
+  }
+
+  @Nested
+  @DisplayName("Packed Operation Tests")
+  class PackedTests {
+
+    @Test
+    @DisplayName("Transpose should match a naive cell-by-cell transpose")
+    void testTranspose() {
+      Random random = new Random(42);
+      for (int n = 0; n < 1000; n++) {
+        long packed = random.nextLong();
+        long expected = 0L;
+        for (int row = 0; row < 4; row++) {
+          for (int col = 0; col < 4; col++) {
+            expected =
+                BitBoard.withExponent(expected, col, row, BitBoard.exponentAt(packed, row, col));
+          }
+        }
+        assertEquals(expected, BitBoard.transpose(packed));
+      }
+    }
+
+    @Test
+    @DisplayName("Canonical form should be shared by all 8 symmetries")
+    void testCanonical() {
+      Random random = new Random(8);
+      for (int n = 0; n < 1000; n++) {
+        long packed = random.nextLong();
+        long canonical = BitBoard.canonical(packed);
+        long transposed = BitBoard.transpose(packed);
+        for (long symmetric :
+            new long[] {
+              packed,
+              BitBoard.mirror(packed),
+              BitBoard.flip(packed),
+              BitBoard.flip(BitBoard.mirror(packed)),
+              transposed,
+              BitBoard.mirror(transposed),
+              BitBoard.flip(transposed),
+              BitBoard.flip(BitBoard.mirror(transposed))
+            }) {
+          assertEquals(canonical, BitBoard.canonical(symmetric));
+        }
+        assertEquals(
+            BitBoard.exponentAt(packed, 1, 0), BitBoard.exponentAt(BitBoard.mirror(packed), 1, 3));
+        assertEquals(
+            BitBoard.exponentAt(packed, 0, 2), BitBoard.exponentAt(BitBoard.flip(packed), 3, 2));
+      }
+    }
+
+    @Test
+    @DisplayName("Should not merge already merged tiles in same move")
+    void testNoDoubleMerge() {
+      long row = 0x1111L; // 2, 2, 2, 2
+      assertEquals(0x0022L, BitBoard.move(row, Direction.LEFT));
+      assertEquals(0x2200L, BitBoard.move(row, Direction.RIGHT));
+      assertEquals(8, BitBoard.score(row, Direction.LEFT));
+      assertEquals(8, BitBoard.score(row, Direction.RIGHT));
+    }
+
+    @Test
+    @DisplayName("Should saturate at the largest representable tile")
+    void testSaturation() {
+      long row = 0xFFL; // 32768, 32768
+      assertEquals(0xFL, BitBoard.move(row, Direction.LEFT));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Direction.class)
+    @DisplayName("Vertical moves should mirror horizontal moves through the transpose")
+    void testMoveSymmetry(Direction direction) {
+      Random random = new Random(7);
+      for (int n = 0; n < 1000; n++) {
+        long packed = random.nextLong() & 0x7777777777777777L;
+        long transposed = BitBoard.transpose(packed);
+        Direction mirrored =
+            switch (direction) {
+              case UP -> Direction.LEFT;
+              case DOWN -> Direction.RIGHT;
+              case LEFT -> Direction.UP;
+              case RIGHT -> Direction.DOWN;
+            };
+        assertEquals(
+            BitBoard.transpose(BitBoard.move(transposed, mirrored)),
+            BitBoard.move(packed, direction));
+        assertEquals(
+            BitBoard.score(transposed, mirrored), BitBoard.score(packed, direction));
+      }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Direction.class)
+    @DisplayName("Should match Grid on random boards")
+    void testMatchesGrid(Direction direction) {
+      Random random = new Random(1234);
+      Grid grid = new Grid(4);
+      for (int n = 0; n < 1000; n++) {
+        int[][] gridArray = grid.getGrid();
+        int[][] boardArray = board.getGrid();
+        for (int i = 0; i < 4; i++) {
+          for (int j = 0; j < 4; j++) {
+            int exponent = random.nextInt(5);
+            gridArray[i][j] = exponent == 0 ? 0 : 1 << exponent;
+            boardArray[i][j] = gridArray[i][j];
+          }
+        }
+        grid.setGrid(gridArray);
+        board.setGrid(boardArray);
+        int gridScore = grid.getScore();
+        int boardScore = board.getScore();
+
+        assertEquals(grid.move(direction), board.move(direction));
+        assertArrayEquals(grid.getGrid(), board.getGrid());
+        assertEquals(grid.getScore() - gridScore, board.getScore() - boardScore);
+      }
+    }
+  }
+
+  private void clearGrid(int[][] gridArray) {
+    for (int[] row : gridArray) {
+      Arrays.fill(row, 0);
+    }
+  }
+
+  private int countNonZeroTiles(int[][] gridArray) {
+    int count = 0;
+    for (int[] row : gridArray) {
+      for (int cell : row) {
+        if (cell != 0) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+}
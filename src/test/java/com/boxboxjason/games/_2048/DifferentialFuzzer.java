@@ -0,0 +1,469 @@
+package com.boxboxjason.games._2048;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Fuzzes move engines against {@link Grid}, the reference for what a move does to the board, the
+ * score and the moved flag.
+ *
+ * <p>Boards of every size are drawn at random or from adversarial shapes: full boards of a few
+ * small tiles that chain merges, checkerboards that cannot move but for one perturbed cell, runs
+ * of equal tiles, tiles near the largest exponent. Every direction is applied to Grid and to each
+ * engine that supports the board, and the move legality scans are checked against the moves too.
+ * The first mismatch of each check is shrunk, by emptying and lowering tiles for as long as it
+ * still fails, and reported.
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes com.boxboxjason.games._2048.DifferentialFuzzer \
+ *     --boards 10000000 --threads 8 --seed 1
+ * </pre>
+ */
+final class DifferentialFuzzer {
+  private static final String USAGE =
+      "Usage: DifferentialFuzzer [--boards N] [--threads N] [--seed N]";
+  private static final Direction[] DIRECTIONS = Direction.values();
+  private static final int MIN_SIZE = 2;
+  private static final int MAX_SIZE = 10;
+  // Largest tile generated: even 50 merges of them in one move keep the score within an int
+  private static final int MAX_EXPONENT = 24;
+  // Largest tile the 4-bit BitBoard cells can merge without saturating
+  private static final int BITBOARD_MAX_EXPONENT = 14;
+  // Small enough that entries keep being evicted
+  private static final int ROW_CACHE_ENTRIES = 64;
+  private static final ThreadLocal<RowCache> ROW_CACHES =
+      ThreadLocal.withInitial(() -> new RowCache(ROW_CACHE_ENTRIES));
+
+  /** What a move did: the board after it, the score it gained and whether any tile moved. */
+  record Outcome(byte[] cells, int score, boolean moved) {
+    boolean matches(Outcome other) {
+      // The board is unspecified when nothing moved
+      return moved == other.moved
+          && (!moved || score == other.score && Arrays.equals(cells, other.cells));
+    }
+
+    @Override
+    public String toString() {
+      return moved ? "moved, +" + score + "\n" + format(cells) : "no move";
+    }
+  }
+
+  /** A move engine, run on boards of the sizes and exponents it supports. */
+  record Engine(String name, int minSize, int maxSize, int maxExponent, Mover mover) {}
+
+  interface Mover {
+    Outcome move(byte[] cells, int size, Direction direction);
+  }
+
+  /** A shrunk failing board, with what Grid and the failing check made of it. */
+  record Counterexample(
+      String check, int size, Direction direction, byte[] board, String expected, String actual) {
+    @Override
+    public String toString() {
+      return check
+          + " on "
+          + size
+          + "x"
+          + size
+          + (direction == null ? "" : " moving " + direction)
+          + ":\n"
+          + format(board)
+          + "expected "
+          + expected
+          + "\nactual "
+          + actual;
+    }
+  }
+
+  private DifferentialFuzzer() {}
+
+  /** The engines this tree has besides Grid. */
+  static List<Engine> engines() {
+    return List.of(
+        new Engine("spec", MIN_SIZE, MAX_SIZE, MAX_EXPONENT, DifferentialFuzzer::specMove),
+        new Engine(
+            "slideInPlace", MIN_SIZE, MAX_SIZE, MAX_EXPONENT, DifferentialFuzzer::slideInPlace),
+        new Engine(
+            "rowCache",
+            RowCache.MIN_SIZE,
+            MAX_SIZE,
+            MAX_EXPONENT,
+            DifferentialFuzzer::rowCacheMove),
+        new Engine(
+            "bitBoard",
+            BitBoard.SIZE,
+            BitBoard.SIZE,
+            BITBOARD_MAX_EXPONENT,
+            DifferentialFuzzer::bitBoardMove));
+  }
+
+  /**
+   * Fuzzes the engines on the given number of boards split across threads, returning the first
+   * counterexample found by each check, in check name order.
+   */
+  static List<Counterexample> run(List<Engine> engines, long boards, int threads, long seed) {
+    Map<String, Counterexample> found = new ConcurrentSkipListMap<>();
+    SplittableRandom random = new SplittableRandom(seed);
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      long share = boards / threads + (t < boards % threads ? 1 : 0);
+      SplittableRandom workerRandom = random.split();
+      tasks.add(
+          () -> {
+            new Worker(engines, found, workerRandom).fuzz(share);
+            return null;
+          });
+    }
+    try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+      for (Future<Void> result : executor.invokeAll(tasks)) {
+        result.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Fuzzing was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fuzzing worker failed", e.getCause());
+    }
+    return List.copyOf(found.values());
+  }
+
+  // One thread's fuzzing, with a reference grid per size so that boards are loaded, not built
+  private static final class Worker {
+    private final List<Engine> engines;
+    private final Map<String, Counterexample> found;
+    private final SplittableRandom random;
+    private final Grid[] grids = new Grid[MAX_SIZE + 1];
+
+    Worker(List<Engine> engines, Map<String, Counterexample> found, SplittableRandom random) {
+      this.engines = engines;
+      this.found = found;
+      this.random = random;
+    }
+
+    void fuzz(long boards) {
+      for (long b = 0; b < boards; b++) {
+        int size = MIN_SIZE + random.nextInt(MAX_SIZE - MIN_SIZE + 1);
+        // Mostly tiles a BitBoard can hold, so that it gets its share of boards
+        int maxExponent = random.nextInt(4) == 0 ? MAX_EXPONENT : BITBOARD_MAX_EXPONENT;
+        check(generate(random, size, maxExponent), size);
+      }
+    }
+
+    private void check(byte[] board, int size) {
+      int maxExponent = maxExponent(board);
+      boolean anyMoved = false;
+      for (Direction direction : DIRECTIONS) {
+        Outcome expected = reference(board, size, direction);
+        anyMoved |= expected.moved();
+        for (Engine engine : engines) {
+          if (size < engine.minSize()
+              || size > engine.maxSize()
+              || maxExponent > engine.maxExponent()
+              || found.containsKey(engine.name())) {
+            continue;
+          }
+          if (!expected.matches(engine.mover().move(board.clone(), size, direction))) {
+            Predicate<byte[]> fails =
+                cells ->
+                    !reference(cells, size, direction)
+                        .matches(engine.mover().move(cells.clone(), size, direction));
+            byte[] shrunk = minimize(board, fails);
+            report(
+                engine.name(),
+                size,
+                direction,
+                shrunk,
+                reference(shrunk, size, direction).toString(),
+                engine.mover().move(shrunk.clone(), size, direction).toString());
+          }
+        }
+      }
+      // An empty board only exists mid-edit: it counts as playable without any move
+      if (!found.containsKey("hasValidMoves")
+          && maxExponent > 0
+          && hasValidMoves(board, size) != anyMoved) {
+        Predicate<byte[]> hasValidMovesFails =
+            cells -> maxExponent(cells) > 0 && hasValidMoves(cells, size) != anyMove(cells, size);
+        byte[] shrunk = minimize(board, hasValidMovesFails);
+        boolean moves = anyMove(shrunk, size);
+        report("hasValidMoves", size, null, shrunk, String.valueOf(moves), String.valueOf(!moves));
+      }
+    }
+
+    private void report(
+        String check, int size, Direction direction, byte[] board, String expected, String actual) {
+      found.putIfAbsent(
+          check, new Counterexample(check, size, direction, board, expected, actual));
+    }
+
+    private Outcome reference(byte[] cells, int size, Direction direction) {
+      Grid grid = grid(size);
+      grid.setCells(cells);
+      int before = grid.getScore();
+      boolean moved = grid.move(direction);
+      byte[] after = new byte[cells.length];
+      grid.copyCells(after);
+      return new Outcome(after, grid.getScore() - before, moved);
+    }
+
+    private boolean hasValidMoves(byte[] cells, int size) {
+      Grid grid = grid(size);
+      grid.setCells(cells);
+      return grid.hasValidMoves();
+    }
+
+    private boolean anyMove(byte[] cells, int size) {
+      for (Direction direction : DIRECTIONS) {
+        if (reference(cells, size, direction).moved()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private Grid grid(int size) {
+      if (grids[size] == null) {
+        grids[size] = new Grid(size, random.split());
+      }
+      return grids[size];
+    }
+  }
+
+  // Random boards and adversarial shapes, with tiles up to 2^maxExponent
+  static byte[] generate(SplittableRandom random, int size, int maxExponent) {
+    byte[] cells = new byte[size * size];
+    switch (random.nextInt(6)) {
+      case 0 -> {
+        // Any density, any tiles
+        int emptyPercent = random.nextInt(101);
+        for (int i = 0; i < cells.length; i++) {
+          if (random.nextInt(100) >= emptyPercent) {
+            cells[i] = (byte) (1 + random.nextInt(maxExponent));
+          }
+        }
+      }
+      case 1 -> {
+        // Full of a few small tiles: long chains like 2 2 2 2 and 2 2 4
+        int distinct = 1 + random.nextInt(3);
+        for (int i = 0; i < cells.length; i++) {
+          cells[i] = (byte) (1 + random.nextInt(distinct));
+        }
+      }
+      case 2 -> {
+        // A checkerboard cannot move; perturbing one cell may open exactly one move
+        byte a = (byte) (1 + random.nextInt(maxExponent));
+        byte b = (byte) (a == maxExponent ? a - 1 : a + 1);
+        for (int i = 0; i < cells.length; i++) {
+          cells[i] = (i / size + i % size) % 2 == 0 ? a : b;
+        }
+        if (random.nextBoolean()) {
+          cells[random.nextInt(cells.length)] =
+              (byte) (random.nextBoolean() ? 0 : 1 + random.nextInt(maxExponent));
+        }
+      }
+      case 3 -> {
+        // Runs of equal tiles with gaps, along rows or columns
+        boolean rows = random.nextBoolean();
+        for (int line = 0; line < size; line++) {
+          byte exponent = (byte) (1 + random.nextInt(maxExponent));
+          for (int i = 0; i < size; i++) {
+            int index = rows ? line * size + i : i * size + line;
+            int roll = random.nextInt(8);
+            if (roll == 0) {
+              exponent = (byte) (1 + random.nextInt(maxExponent));
+            }
+            cells[index] = roll == 1 ? 0 : exponent;
+          }
+        }
+      }
+      case 4 -> {
+        // Tiles near the largest exponent
+        for (int i = 0; i < cells.length; i++) {
+          if (random.nextInt(4) != 0) {
+            cells[i] = (byte) Math.max(1, maxExponent - random.nextInt(3));
+          }
+        }
+      }
+      default -> {
+        // One or two tiles
+        int tiles = 1 + random.nextInt(2);
+        for (int t = 0; t < tiles; t++) {
+          cells[random.nextInt(cells.length)] = (byte) (1 + random.nextInt(maxExponent));
+        }
+      }
+    }
+    return cells;
+  }
+
+  /**
+   * Shrinks a failing board for as long as it keeps failing: lowering all its tiles at once,
+   * emptying tiles, then lowering them one at a time.
+   */
+  static byte[] minimize(byte[] board, Predicate<byte[]> fails) {
+    byte[] best = board.clone();
+    boolean shrunk = true;
+    while (shrunk) {
+      shrunk = false;
+      byte[] lower = best.clone();
+      for (int i = 0; i < lower.length; i++) {
+        if (lower[i] > 1) {
+          lower[i]--;
+        }
+      }
+      if (!Arrays.equals(lower, best) && fails.test(lower)) {
+        best = lower;
+        shrunk = true;
+        continue;
+      }
+      for (int i = 0; i < best.length; i++) {
+        byte exponent = best[i];
+        for (int candidate = 0; candidate < exponent; candidate++) {
+          best[i] = (byte) candidate;
+          if (fails.test(best)) {
+            shrunk = true;
+            break;
+          }
+          best[i] = exponent;
+        }
+      }
+    }
+    return best;
+  }
+
+  // The rules as written, on tile values rather than exponents
+  static Outcome specMove(byte[] cells, int size, Direction direction) {
+    byte[] after = new byte[cells.length];
+    int score = 0;
+    for (int line = 0; line < size; line++) {
+      int[] indices = new int[size];
+      for (int i = 0; i < size; i++) {
+        indices[i] =
+            switch (direction) {
+              case LEFT -> line * size + i;
+              case RIGHT -> line * size + size - 1 - i;
+              case UP -> i * size + line;
+              case DOWN -> (size - 1 - i) * size + line;
+            };
+      }
+      List<Integer> tiles = new ArrayList<>();
+      for (int index : indices) {
+        if (cells[index] != 0) {
+          tiles.add(1 << cells[index]);
+        }
+      }
+      List<Integer> merged = new ArrayList<>();
+      for (int i = 0; i < tiles.size(); i++) {
+        if (i + 1 < tiles.size() && tiles.get(i).equals(tiles.get(i + 1))) {
+          merged.add(2 * tiles.get(i));
+          score += 2 * tiles.get(i);
+          i++;
+        } else {
+          merged.add(tiles.get(i));
+        }
+      }
+      for (int i = 0; i < merged.size(); i++) {
+        after[indices[i]] = (byte) Integer.numberOfTrailingZeros(merged.get(i));
+      }
+    }
+    return new Outcome(after, score, !Arrays.equals(cells, after));
+  }
+
+  static Outcome slideInPlace(byte[] cells, int size, Direction direction) {
+    int gain = Grid.slide(cells, cells, size, direction);
+    return gain == Grid.NO_MOVE
+        ? new Outcome(cells, 0, false)
+        : new Outcome(cells, gain, true);
+  }
+
+  // Lines slid through a small row cache, into a board of leftovers to catch unwritten cells
+  static Outcome rowCacheMove(byte[] cells, int size, Direction direction) {
+    byte[] after = new byte[cells.length];
+    Arrays.fill(after, (byte) -1);
+    int gain = ROW_CACHES.get().slide(cells, after, size, direction);
+    return new Outcome(after, gain, gain != Grid.NO_MOVE);
+  }
+
+  static Outcome bitBoardMove(byte[] cells, int size, Direction direction) {
+    long board = BitBoard.fromExponents(cells);
+    long moved = BitBoard.move(board, direction);
+    byte[] after = new byte[cells.length];
+    BitBoard.toExponents(moved, after);
+    return new Outcome(after, BitBoard.score(board, direction), moved != board);
+  }
+
+  private static int maxExponent(byte[] cells) {
+    int max = 0;
+    for (byte exponent : cells) {
+      max = Math.max(max, exponent);
+    }
+    return max;
+  }
+
+  private static String format(byte[] cells) {
+    int size = (int) Math.sqrt(cells.length);
+    String column = "%" + (2 + Integer.toString(1 << maxExponent(cells)).length()) + "d";
+    StringBuilder sb = new StringBuilder();
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        byte exponent = cells[row * size + col];
+        sb.append(String.format(Locale.ROOT, column, exponent == 0 ? 0 : 1 << exponent));
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+
+  public static void main(String[] args) {
+    long boards = 1_000_000;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long seed = System.nanoTime();
+    try {
+      for (int i = 0; i < args.length; i += 2) {
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("Missing value for " + args[i]);
+        }
+        String value = args[i + 1];
+        switch (args[i]) {
+          case "--boards" -> boards = Long.parseLong(value);
+          case "--threads" -> threads = Integer.parseInt(value);
+          case "--seed" -> seed = Long.parseLong(value);
+          default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+      if (boards < 1 || threads < 1) {
+        throw new IllegalArgumentException("Boards and threads must be positive");
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+
+    long start = System.nanoTime();
+    List<Counterexample> counterexamples = run(engines(), boards, threads, seed);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf(
+        Locale.ROOT,
+        "%d boards (seed %d) in %.1f s, %.0f boards/s%n",
+        boards,
+        seed,
+        seconds,
+        boards / seconds);
+    for (Counterexample counterexample : counterexamples) {
+      System.out.println();
+      System.out.println(counterexample);
+    }
+    System.exit(counterexamples.isEmpty() ? 0 : 1);
+  }
+}
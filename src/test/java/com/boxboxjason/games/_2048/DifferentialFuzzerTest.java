@@ -0,0 +1,74 @@
+package com.boxboxjason.games._2048;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.boxboxjason.games._2048.DifferentialFuzzer.Counterexample;
+import com.boxboxjason.games._2048.DifferentialFuzzer.Engine;
+import com.boxboxjason.games._2048.DifferentialFuzzer.Outcome;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Test suite running the differential fuzzer on the move engines. */
+@DisplayName("DifferentialFuzzer Test Suite")
+class DifferentialFuzzerTest {
+
+  @Test
+  @DisplayName("Should find no mismatch between Grid and the other engines")
+  void testEnginesMatchGrid() {
+    List<Counterexample> counterexamples =
+        DifferentialFuzzer.run(DifferentialFuzzer.engines(), 100_000, 2, 2048);
+    assertTrue(counterexamples.isEmpty(), counterexamples::toString);
+  }
+
+  @Test
+  @DisplayName("Should shrink the mismatch of a broken engine to the tiles that cause it")
+  void testMinimizesCounterexample() {
+    // Claims that nothing moved whenever the board holds a 32 tile
+    Engine broken =
+        new Engine(
+            "broken",
+            2,
+            10,
+            14,
+            (cells, size, direction) -> {
+              boolean has32 = false;
+              for (byte exponent : cells) {
+                has32 |= exponent == 5;
+              }
+              Outcome outcome = DifferentialFuzzer.specMove(cells, size, direction);
+              return has32 ? new Outcome(cells, 0, false) : outcome;
+            });
+    List<Counterexample> counterexamples = DifferentialFuzzer.run(List.of(broken), 20_000, 1, 7);
+
+    assertEquals(1, counterexamples.size());
+    Counterexample counterexample = counterexamples.getFirst();
+    assertEquals("broken", counterexample.check());
+    // A lone 32 tile that can move is the smallest board showing the bug
+    int tiles = 0;
+    for (byte exponent : counterexample.board()) {
+      if (exponent != 0) {
+        assertEquals(5, exponent, counterexample::toString);
+        tiles++;
+      }
+    }
+    assertEquals(1, tiles, counterexample::toString);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {2, 4, 7, 10})
+  @DisplayName("Should generate boards of the given size with tiles up to the given exponent")
+  void testGeneratedBoards(int size) {
+    SplittableRandom random = new SplittableRandom(size);
+    for (int trial = 0; trial < 1_000; trial++) {
+      byte[] cells = DifferentialFuzzer.generate(random, size, 14);
+      assertEquals(size * size, cells.length);
+      for (byte exponent : cells) {
+        assertTrue(exponent >= 0 && exponent <= 14, "Exponent out of range: " + exponent);
+      }
+    }
+  }
+}
@@ -2,6 +2,11 @@ package com.boxboxjason.games._2048;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -12,6 +17,8 @@ import org.junit.jupiter.params.provider.ValueSource;
 /** Comprehensive test suite for the Grid class with edge cases coverage. */
 @DisplayName("Grid Test Suite")
 class GridTest {
+  private static final int UNDO_MEMORY_BYTES = 64 * 1024;
+
   private Grid grid;
 
   @BeforeEach
@@ -146,6 +153,7 @@ class GridTest {
       int[][] gridArray = grid.getGrid();
       gridArray[0][0] = 2;
       gridArray[1][0] = 2;
+      grid.setGrid(gridArray);
       grid.moveAndAddTile(Direction.UP);
 
       grid.reinit(4);
@@ -154,6 +162,49 @@ class GridTest {
     }
   }
 
+  @Nested
+  @DisplayName("Seeded Game Tests")
+  class SeededGameTests {
+
+    @Test
+    @DisplayName("Should replay the same game from the same seed")
+    void testSameSeedSameGame() {
+      Grid first = new Grid(4, 42L);
+      Grid second = new Grid(4, 42L);
+      Direction[] directions = Direction.values();
+      for (int i = 0; i < 200 && first.hasValidMoves(); i++) {
+        Direction direction = directions[i % directions.length];
+        assertEquals(first.moveAndAddTile(direction), second.moveAndAddTile(direction));
+        assertEquals(first.toString(), second.toString());
+        assertEquals(first.getScore(), second.getScore());
+      }
+    }
+
+    @Test
+    @DisplayName("Should restart the stream when reinitialised with a seed")
+    void testReinitWithSeed() {
+      Grid replay = new Grid(5, 7L);
+      String initial = replay.toString();
+      replay.moveAndAddTile(Direction.LEFT);
+
+      grid.reinit(5, 7L);
+
+      assertEquals(initial, grid.toString());
+    }
+
+    @Test
+    @DisplayName("Should draw tiles from the supplied generator")
+    void testSuppliedGenerator() {
+      SplittableRandom root = new SplittableRandom(3L);
+      Grid first = new Grid(6, root.split());
+      Grid second = new Grid(6, root.split());
+      Grid firstAgain = new Grid(6, new SplittableRandom(3L).split());
+
+      assertEquals(first.toString(), firstAgain.toString());
+      assertNotEquals(first.toString(), second.toString());
+    }
+  }
+
   @Nested
   @DisplayName("AddRandomTile Tests")
   class AddRandomTileTests {
@@ -193,6 +244,44 @@ class GridTest {
         }
       }
     }
+
+    @Test
+    @DisplayName("Should fill a large grid one empty cell at a time")
+    void testAddRandomTileUntilFull() {
+      Grid testGrid = new Grid(10);
+      for (int expected = 3; expected <= 100; expected++) {
+        assertFalse(testGrid.isFull());
+        testGrid.addRandomTile();
+        assertEquals(expected, countNonZeroTiles(testGrid.getGrid()));
+      }
+      assertTrue(testGrid.isFull());
+    }
+
+    @Test
+    @DisplayName("Should throw instead of looping when the grid is full")
+    void testAddRandomTileToFullGrid() {
+      int[][] gridArray = grid.getGrid();
+      for (int[] row : gridArray) {
+        Arrays.fill(row, 2);
+      }
+      grid.setGrid(gridArray);
+
+      IllegalStateException exception =
+          assertThrows(IllegalStateException.class, () -> grid.addRandomTile());
+      assertEquals("Cannot add a tile to a full grid", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should track empty cells through moves and merges")
+    void testEmptyCellsTrackedThroughMoves() {
+      Grid testGrid = new Grid(3);
+      Direction[] directions = Direction.values();
+      for (int i = 0; i < 200 && testGrid.hasValidMoves(); i++) {
+        testGrid.moveAndAddTile(directions[i % directions.length]);
+        int[][] gridArray = testGrid.getGrid();
+        assertEquals(countNonZeroTiles(gridArray) == 9, testGrid.isFull());
+      }
+    }
   }
 
   @Nested
@@ -208,10 +297,12 @@ class GridTest {
 
       // Setup: tile at bottom
       gridArray[3][0] = 2;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.move(Direction.UP);
 
       assertTrue(moved);
+      gridArray = grid.getGrid();
       assertEquals(2, gridArray[0][0]);
       assertEquals(0, gridArray[3][0]);
     }
@@ -224,10 +315,12 @@ class GridTest {
 
       gridArray[0][0] = 2;
       gridArray[1][0] = 2;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.move(Direction.UP);
 
       assertTrue(moved);
+      gridArray = grid.getGrid();
       assertEquals(4, gridArray[0][0]);
       assertEquals(0, gridArray[1][0]);
     }
@@ -242,9 +335,11 @@ class GridTest {
       gridArray[1][0] = 2;
       gridArray[2][0] = 2;
       gridArray[3][0] = 2;
+      grid.setGrid(gridArray);
 
       grid.move(Direction.UP);
 
+      gridArray = grid.getGrid();
       // Should result in 4, 4, 0, 0 not 8, 0, 0, 0
       assertEquals(4, gridArray[0][0]);
       assertEquals(4, gridArray[1][0]);
@@ -260,6 +355,7 @@ class GridTest {
 
       gridArray[0][0] = 2;
       gridArray[0][1] = 4;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.move(Direction.UP);
 
@@ -275,9 +371,11 @@ class GridTest {
       gridArray[1][0] = 2;
       gridArray[2][0] = 4;
       gridArray[3][0] = 2;
+      grid.setGrid(gridArray);
 
       grid.move(Direction.UP);
 
+      gridArray = grid.getGrid();
       assertEquals(2, gridArray[0][0]);
       assertEquals(4, gridArray[1][0]);
       assertEquals(2, gridArray[2][0]);
@@ -296,10 +394,12 @@ class GridTest {
       clearGrid(gridArray);
 
       gridArray[0][0] = 2;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.move(Direction.DOWN);
 
       assertTrue(moved);
+      gridArray = grid.getGrid();
       assertEquals(0, gridArray[0][0]);
       assertEquals(2, gridArray[3][0]);
     }
@@ -312,10 +412,12 @@ class GridTest {
 
       gridArray[2][0] = 2;
       gridArray[3][0] = 2;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.move(Direction.DOWN);
 
       assertTrue(moved);
+      gridArray = grid.getGrid();
       assertEquals(0, gridArray[2][0]);
       assertEquals(4, gridArray[3][0]);
     }
@@ -330,9 +432,11 @@ class GridTest {
       gridArray[1][0] = 2;
       gridArray[2][0] = 2;
       gridArray[3][0] = 2;
+      grid.setGrid(gridArray);
 
       grid.move(Direction.DOWN);
 
+      gridArray = grid.getGrid();
       assertEquals(0, gridArray[0][0]);
       assertEquals(0, gridArray[1][0]);
       assertEquals(4, gridArray[2][0]);
@@ -347,6 +451,7 @@ class GridTest {
 
       gridArray[3][0] = 2;
       gridArray[3][1] = 4;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.move(Direction.DOWN);
 
@@ -362,9 +467,11 @@ class GridTest {
       gridArray[1][0] = 2;
       gridArray[2][0] = 4;
       gridArray[3][0] = 2;
+      grid.setGrid(gridArray);
 
       grid.move(Direction.DOWN);
 
+      gridArray = grid.getGrid();
       assertEquals(0, gridArray[0][0]);
       assertEquals(2, gridArray[1][0]);
       assertEquals(4, gridArray[2][0]);
@@ -382,9 +489,11 @@ class GridTest {
       gridArray[1][0] = 2;
       gridArray[2][0] = 4;
       gridArray[3][0] = 4;
+      grid.setGrid(gridArray);
 
       grid.move(Direction.DOWN);
 
+      gridArray = grid.getGrid();
       // Should result in: 0, 0, 4, 8
       assertEquals(4, gridArray[2][0]);
       assertEquals(8, gridArray[3][0]);
@@ -402,10 +511,12 @@ class GridTest {
       clearGrid(gridArray);
 
       gridArray[0][3] = 2;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.move(Direction.LEFT);
 
       assertTrue(moved);
+      gridArray = grid.getGrid();
       assertEquals(2, gridArray[0][0]);
       assertEquals(0, gridArray[0][3]);
     }
@@ -418,10 +529,12 @@ class GridTest {
 
       gridArray[0][0] = 2;
       gridArray[0][1] = 2;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.move(Direction.LEFT);
 
       assertTrue(moved);
+      gridArray = grid.getGrid();
       assertEquals(4, gridArray[0][0]);
       assertEquals(0, gridArray[0][1]);
     }
@@ -436,9 +549,11 @@ class GridTest {
       gridArray[0][1] = 2;
       gridArray[0][2] = 2;
       gridArray[0][3] = 2;
+      grid.setGrid(gridArray);
 
       grid.move(Direction.LEFT);
 
+      gridArray = grid.getGrid();
       assertEquals(4, gridArray[0][0]);
       assertEquals(4, gridArray[0][1]);
       assertEquals(0, gridArray[0][2]);
@@ -453,6 +568,7 @@ class GridTest {
 
       gridArray[0][0] = 2;
       gridArray[1][0] = 4;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.move(Direction.LEFT);
 
@@ -471,10 +587,12 @@ class GridTest {
       clearGrid(gridArray);
 
       gridArray[0][0] = 2;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.move(Direction.RIGHT);
 
       assertTrue(moved);
+      gridArray = grid.getGrid();
       assertEquals(0, gridArray[0][0]);
       assertEquals(2, gridArray[0][3]);
     }
@@ -487,10 +605,12 @@ class GridTest {
 
       gridArray[0][2] = 2;
       gridArray[0][3] = 2;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.move(Direction.RIGHT);
 
       assertTrue(moved);
+      gridArray = grid.getGrid();
       assertEquals(0, gridArray[0][2]);
       assertEquals(4, gridArray[0][3]);
     }
@@ -505,9 +625,11 @@ class GridTest {
       gridArray[0][1] = 2;
       gridArray[0][2] = 2;
       gridArray[0][3] = 2;
+      grid.setGrid(gridArray);
 
       grid.move(Direction.RIGHT);
 
+      gridArray = grid.getGrid();
       assertEquals(0, gridArray[0][0]);
       assertEquals(0, gridArray[0][1]);
       assertEquals(4, gridArray[0][2]);
@@ -522,6 +644,7 @@ class GridTest {
 
       gridArray[0][3] = 2;
       gridArray[1][3] = 4;
+      grid.setGrid(gridArray);
 
       boolean moved = grid.moveAndAddTile(Direction.RIGHT);
 
@@ -541,9 +664,11 @@ class GridTest {
 
       gridArray[0][0] = 2;
       gridArray[1][0] = 2;
+      grid.setGrid(gridArray);
 
       int beforeCount = countNonZeroTiles(gridArray);
       grid.moveAndAddTile(Direction.UP);
+      gridArray = grid.getGrid();
       int afterCount = countNonZeroTiles(gridArray);
 
       // After merge (2 tiles -> 1 tile) and adding new random tile
@@ -557,9 +682,11 @@ class GridTest {
       clearGrid(gridArray);
 
       gridArray[0][0] = 2;
+      grid.setGrid(gridArray);
 
       int beforeCount = countNonZeroTiles(gridArray);
       grid.moveAndAddTile(Direction.UP);
+      gridArray = grid.getGrid();
       int afterCount = countNonZeroTiles(gridArray);
 
       assertEquals(beforeCount, afterCount);
@@ -574,10 +701,12 @@ class GridTest {
 
       gridArray[0][0] = 2;
       gridArray[1][0] = 2;
+      smallGrid.setGrid(gridArray);
 
       boolean moved = smallGrid.move(Direction.UP);
 
       assertTrue(moved);
+      gridArray = smallGrid.getGrid();
       assertEquals(4, gridArray[0][0]);
     }
 
@@ -589,10 +718,12 @@ class GridTest {
       clearGrid(gridArray);
 
       gridArray[9][0] = 2;
+      largeGrid.setGrid(gridArray);
 
       boolean moved = largeGrid.move(Direction.UP);
 
       assertTrue(moved);
+      gridArray = largeGrid.getGrid();
       assertEquals(2, gridArray[0][0]);
     }
 
@@ -607,9 +738,11 @@ class GridTest {
       gridArray[1][0] = 2;
       gridArray[2][0] = 4;
       gridArray[3][0] = 4;
+      grid.setGrid(gridArray);
 
       grid.move(Direction.UP);
 
+      gridArray = grid.getGrid();
       // Should result in: 4, 8, 0, 0 (plus random tile somewhere)
       assertEquals(4, gridArray[0][0]);
       assertEquals(8, gridArray[1][0]);
@@ -626,9 +759,11 @@ class GridTest {
       gridArray[1][0] = 2;
       gridArray[2][0] = 4;
       gridArray[3][0] = 4;
+      grid.setGrid(gridArray);
 
       grid.move(Direction.DOWN);
 
+      gridArray = grid.getGrid();
       // Should result in: 0, 0, 4, 8
       assertEquals(4, gridArray[2][0]);
       assertEquals(8, gridArray[3][0]);
@@ -645,9 +780,11 @@ class GridTest {
       gridArray[0][1] = 2;
       gridArray[0][2] = 4;
       gridArray[0][3] = 4;
+      grid.setGrid(gridArray);
 
       grid.move(Direction.LEFT);
 
+      gridArray = grid.getGrid();
       // Should result in: 4, 8, 0, 0
       assertEquals(4, gridArray[0][0]);
       assertEquals(8, gridArray[0][1]);
@@ -664,13 +801,392 @@ class GridTest {
       gridArray[0][1] = 2;
       gridArray[0][2] = 4;
       gridArray[0][3] = 4;
+      grid.setGrid(gridArray);
 
       grid.move(Direction.RIGHT);
 
+      gridArray = grid.getGrid();
       // Should result in: 0, 0, 4, 8
       assertEquals(4, gridArray[0][2]);
       assertEquals(8, gridArray[0][3]);
     }
+
+    @Test
+    @DisplayName("Should not merge a freshly merged tile again in the RIGHT direction")
+    void testNoChainedMergeRight() {
+      int[][] gridArray = grid.getGrid();
+      clearGrid(gridArray);
+
+      // Create a row with: 4, 2, 2, 0
+      gridArray[0][0] = 4;
+      gridArray[0][1] = 2;
+      gridArray[0][2] = 2;
+      grid.setGrid(gridArray);
+
+      grid.move(Direction.RIGHT);
+
+      gridArray = grid.getGrid();
+      // Should result in: 0, 0, 4, 4 (not 0, 0, 0, 8)
+      assertArrayEquals(new int[] {0, 0, 4, 4}, gridArray[0]);
+      assertEquals(4, grid.getScore());
+    }
+
+    @Test
+    @DisplayName("Should not merge a freshly merged tile again in the DOWN direction")
+    void testNoChainedMergeDown() {
+      int[][] gridArray = grid.getGrid();
+      clearGrid(gridArray);
+
+      // Create a column with: 4, 2, 2, 0
+      gridArray[0][0] = 4;
+      gridArray[1][0] = 2;
+      gridArray[2][0] = 2;
+      grid.setGrid(gridArray);
+
+      grid.move(Direction.DOWN);
+
+      gridArray = grid.getGrid();
+      // Should result in: 0, 0, 4, 4 (not 0, 0, 0, 8)
+      assertEquals(0, gridArray[1][0]);
+      assertEquals(4, gridArray[2][0]);
+      assertEquals(4, gridArray[3][0]);
+      assertEquals(4, grid.getScore());
+    }
+
+    @Test
+    @DisplayName("Should not merge two of the largest tiles")
+    void testLargestTilesDoNotMerge() {
+      int[][] gridArray = grid.getGrid();
+      clearGrid(gridArray);
+      gridArray[0][2] = 1 << Grid.MAX_EXPONENT;
+      gridArray[0][3] = 1 << Grid.MAX_EXPONENT;
+      grid.setGrid(gridArray);
+
+      assertTrue(grid.move(Direction.LEFT));
+
+      gridArray = grid.getGrid();
+      assertEquals(1 << Grid.MAX_EXPONENT, gridArray[0][0]);
+      assertEquals(1 << Grid.MAX_EXPONENT, gridArray[0][1]);
+      assertEquals(0, grid.getScore());
+      assertFalse(grid.move(Direction.LEFT));
+    }
+
+    @Test
+    @DisplayName("Should end the game on a full board whose only pair is of the largest tiles")
+    void testLargestPairIsNotAMove() {
+      int[][] gridArray = grid.getGrid();
+      for (int i = 0; i < 4; i++) {
+        for (int j = 0; j < 4; j++) {
+          gridArray[i][j] = (i + j) % 2 == 0 ? 2 : 4;
+        }
+      }
+      gridArray[0][0] = 1 << Grid.MAX_EXPONENT;
+      gridArray[0][1] = 1 << Grid.MAX_EXPONENT;
+      grid.setGrid(gridArray);
+
+      assertFalse(grid.hasValidMoves());
+      for (Direction direction : Direction.values()) {
+        assertFalse(grid.move(direction));
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Preview Tests")
+  class PreviewTests {
+
+    @Test
+    @DisplayName("Should preview every direction without touching the grid")
+    void testPreviewMovesHasNoSideEffects() {
+      int[][] gridArray = grid.getGrid();
+      clearGrid(gridArray);
+      gridArray[0][0] = 2;
+      gridArray[0][1] = 2;
+      gridArray[1][0] = 4;
+      grid.setGrid(gridArray);
+      String before = grid.toString();
+
+      byte[][] successors = new byte[4][16];
+      int[] gains = new int[4];
+      grid.previewMoves(successors, gains);
+
+      assertEquals(before, grid.toString());
+      assertEquals(0, grid.getScore());
+      assertEquals(Grid.NO_MOVE, gains[Direction.UP.ordinal()]);
+      assertEquals(4, gains[Direction.LEFT.ordinal()]);
+      assertEquals(4, gains[Direction.RIGHT.ordinal()]);
+      assertEquals(0, gains[Direction.DOWN.ordinal()]);
+      assertEquals(2, successors[Direction.LEFT.ordinal()][0]);
+      assertEquals(2, successors[Direction.RIGHT.ordinal()][3]);
+    }
+
+    @Test
+    @DisplayName("Should preview exactly what move then does")
+    void testPreviewMatchesMove() {
+      Grid testGrid = new Grid(5, 11L);
+      byte[] successor = new byte[25];
+      byte[] actual = new byte[25];
+      Direction[] directions = Direction.values();
+      for (int i = 0; i < 300 && testGrid.hasValidMoves(); i++) {
+        Direction direction = directions[(i * 7) % directions.length];
+        int score = testGrid.getScore();
+        int gain = testGrid.preview(direction, successor);
+
+        assertEquals(gain != Grid.NO_MOVE, testGrid.move(direction));
+        testGrid.copyCells(actual);
+        assertArrayEquals(successor, actual);
+        assertEquals(score + Math.max(gain, 0), testGrid.getScore());
+        if (!testGrid.isFull()) {
+          testGrid.addRandomTile();
+        }
+      }
+    }
+
+    @Test
+    @DisplayName("Should slide in place the same way as into another buffer")
+    void testSlideInPlace() {
+      Random random = new Random(5);
+      for (int n = 0; n < 1000; n++) {
+        int size = 2 + random.nextInt(9);
+        byte[] board = new byte[size * size];
+        for (int i = 0; i < board.length; i++) {
+          board[i] = (byte) random.nextInt(4);
+        }
+        Direction direction = Direction.values()[random.nextInt(4)];
+        byte[] copy = new byte[board.length];
+
+        int gain = Grid.slide(board, copy, size, direction);
+
+        assertEquals(gain, Grid.slide(board, board, size, direction));
+        assertArrayEquals(copy, board);
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Undo/Redo Tests")
+  class UndoRedoTests {
+
+    @BeforeEach
+    void enableUndo() {
+      grid.setUndoMemoryLimit(UNDO_MEMORY_BYTES);
+    }
+
+    @Test
+    @DisplayName("Should undo and redo a sequence of moves")
+    void testUndoRedoSequence() {
+      Grid testGrid = new Grid(4, 21L);
+      testGrid.setUndoMemoryLimit(UNDO_MEMORY_BYTES);
+      List<String> boards = new ArrayList<>();
+      List<Integer> scores = new ArrayList<>();
+      boards.add(testGrid.toString());
+      scores.add(testGrid.getScore());
+      Direction[] directions = Direction.values();
+      for (int i = 0; i < 50 && testGrid.hasValidMoves(); i++) {
+        if (testGrid.moveAndAddTile(directions[i % directions.length])) {
+          boards.add(testGrid.toString());
+          scores.add(testGrid.getScore());
+        }
+      }
+
+      for (int i = boards.size() - 2; i >= 0; i--) {
+        assertTrue(testGrid.undo());
+        assertEquals(boards.get(i), testGrid.toString());
+        assertEquals(scores.get(i), testGrid.getScore());
+      }
+      assertFalse(testGrid.undo());
+
+      for (int i = 1; i < boards.size(); i++) {
+        assertTrue(testGrid.redo());
+        assertEquals(boards.get(i), testGrid.toString());
+        assertEquals(scores.get(i), testGrid.getScore());
+      }
+      assertFalse(testGrid.redo());
+    }
+
+    @Test
+    @DisplayName("Should restore the tiles when undoing")
+    void testUndoRestoresTiles() {
+      int[][] gridArray = grid.getGrid();
+      clearGrid(gridArray);
+      gridArray[0][0] = 2;
+      gridArray[0][1] = 2;
+      grid.setGrid(gridArray);
+
+      assertTrue(grid.moveAndAddTile(Direction.LEFT));
+      assertTrue(grid.undo());
+
+      gridArray = grid.getGrid();
+      assertEquals(2, gridArray[0][0]);
+      assertEquals(2, gridArray[0][1]);
+      assertEquals(2, countNonZeroTiles(gridArray));
+      assertEquals(0, grid.getScore());
+    }
+
+    @Test
+    @DisplayName("Should forget redo history after a new move")
+    void testNewMoveClearsRedo() {
+      Grid testGrid = new Grid(4, 5L);
+      testGrid.setUndoMemoryLimit(UNDO_MEMORY_BYTES);
+      while (!testGrid.moveAndAddTile(Direction.LEFT)) {
+        testGrid.moveAndAddTile(Direction.UP);
+      }
+      testGrid.undo();
+      assertTrue(testGrid.canRedo());
+
+      for (Direction direction : Direction.values()) {
+        if (testGrid.moveAndAddTile(direction)) {
+          break;
+        }
+      }
+
+      assertFalse(testGrid.canRedo());
+    }
+
+    @Test
+    @DisplayName("Should keep redo history after a blocked move")
+    void testBlockedMoveKeepsRedo() {
+      int[][] gridArray = grid.getGrid();
+      clearGrid(gridArray);
+      gridArray[0][0] = 2;
+      grid.setGrid(gridArray);
+      assertTrue(grid.moveAndAddTile(Direction.RIGHT));
+      String moved = grid.toString();
+      assertTrue(grid.undo());
+
+      assertFalse(grid.moveAndAddTile(Direction.LEFT));
+
+      assertTrue(grid.canRedo());
+      assertTrue(grid.redo());
+      assertEquals(moved, grid.toString());
+    }
+
+    @Test
+    @DisplayName("Should clear history on edits outside of moveAndAddTile")
+    void testOutOfBandEditsClearHistory() {
+      int[][] gridArray = grid.getGrid();
+      clearGrid(gridArray);
+      gridArray[0][0] = 2;
+      grid.setGrid(gridArray);
+      grid.moveAndAddTile(Direction.RIGHT);
+      assertTrue(grid.canUndo());
+
+      gridArray = grid.getGrid();
+      gridArray[3][3] = 0;
+      gridArray[2][2] = 8;
+      grid.setGrid(gridArray);
+
+      assertFalse(grid.canUndo());
+      assertFalse(grid.undo());
+    }
+
+    @Test
+    @DisplayName("Should keep only the most recent moves within the memory limit")
+    void testMemoryLimit() {
+      Grid testGrid = new Grid(4, 8L);
+      // 64 ints: the ring buffer cannot hold many 4x4 moves
+      testGrid.setUndoMemoryLimit(256);
+      int moves = 0;
+      Direction[] directions = Direction.values();
+      for (int i = 0; i < 200 && testGrid.hasValidMoves(); i++) {
+        if (testGrid.moveAndAddTile(directions[i % directions.length])) {
+          moves++;
+        }
+      }
+
+      int undone = 0;
+      while (testGrid.undo()) {
+        undone++;
+      }
+      assertTrue(undone > 0);
+      assertTrue(undone < moves);
+    }
+
+    @Test
+    @DisplayName("Should not record anything when the limit is 0")
+    void testDisabledJournal() {
+      grid.setUndoMemoryLimit(0);
+      for (Direction direction : Direction.values()) {
+        grid.moveAndAddTile(direction);
+      }
+      assertFalse(grid.canUndo());
+    }
+
+    @Test
+    @DisplayName("Should not record anything unless a limit is set")
+    void testDisabledByDefault() {
+      Grid testGrid = new Grid(4, 3L);
+      for (Direction direction : Direction.values()) {
+        testGrid.moveAndAddTile(direction);
+      }
+      assertFalse(testGrid.canUndo());
+    }
+  }
+
+  @Nested
+  @DisplayName("Hashing Tests")
+  class HashingTests {
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 4, 7, 10})
+    @DisplayName("Incremental hash should match a full recomputation")
+    void testIncrementalHash(int size) {
+      Grid testGrid = new Grid(size, size);
+      testGrid.setUndoMemoryLimit(UNDO_MEMORY_BYTES);
+      byte[] cells = new byte[size * size];
+      Direction[] directions = Direction.values();
+      for (int i = 0; i < 200 && testGrid.hasValidMoves(); i++) {
+        testGrid.moveAndAddTile(directions[(i * 3) % directions.length]);
+        if (i % 10 == 0) {
+          testGrid.undo();
+        }
+        testGrid.copyCells(cells);
+        assertEquals(Zobrist.hash(cells, size), testGrid.getHash());
+      }
+    }
+
+    @Test
+    @DisplayName("Should give the same hash to the same board")
+    void testEqualBoardsEqualHashes() {
+      Grid other = new Grid(4);
+      int[][] first = grid.getGrid();
+      int[][] second = other.getGrid();
+      clearGrid(first);
+      clearGrid(second);
+      first[1][2] = 8;
+      grid.setGrid(first);
+      second[1][2] = 8;
+      other.setGrid(second);
+
+      assertEquals(grid.getHash(), other.getHash());
+      second[1][2] = 16;
+      other.setGrid(second);
+      assertNotEquals(grid.getHash(), other.getHash());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 4, 5, 10})
+    @DisplayName("Canonical key should be shared by all symmetric boards")
+    void testCanonicalKey(int size) {
+      Random random = new Random(size);
+      byte[] cells = new byte[size * size];
+      for (int i = 0; i < cells.length; i++) {
+        cells[i] = (byte) random.nextInt(12);
+      }
+      long expected = Zobrist.canonicalHash(cells, size);
+      for (int symmetry = 0; symmetry < Zobrist.SYMMETRIES; symmetry++) {
+        Grid testGrid = new Grid(size);
+        int[][] gridArray = testGrid.getGrid();
+        for (int i = 0; i < cells.length; i++) {
+          int target = Zobrist.transform(symmetry, i, size);
+          gridArray[target / size][target % size] = cells[i] == 0 ? 0 : 1 << cells[i];
+        }
+        testGrid.setGrid(gridArray);
+        assertEquals(expected, testGrid.getCanonicalKey());
+      }
+      cells[0]++;
+      assertNotEquals(expected, Zobrist.canonicalHash(cells, size));
+    }
   }
 
   @Nested
@@ -682,6 +1198,7 @@ class GridTest {
     void testEmptyGridNotFull() {
       int[][] gridArray = grid.getGrid();
       clearGrid(gridArray);
+      grid.setGrid(gridArray);
 
       assertFalse(grid.isFull());
     }
@@ -694,6 +1211,7 @@ class GridTest {
 
       gridArray[0][0] = 2;
       gridArray[0][1] = 4;
+      grid.setGrid(gridArray);
 
       assertFalse(grid.isFull());
     }
@@ -708,6 +1226,7 @@ class GridTest {
           gridArray[i][j] = 2;
         }
       }
+      grid.setGrid(gridArray);
 
       assertTrue(grid.isFull());
     }
@@ -723,6 +1242,7 @@ class GridTest {
         }
       }
       gridArray[3][3] = 0;
+      grid.setGrid(gridArray);
 
       assertFalse(grid.isFull());
     }
@@ -738,6 +1258,7 @@ class GridTest {
       int[][] gridArray = grid.getGrid();
       clearGrid(gridArray);
       gridArray[0][0] = 2; // Need at least one tile
+      grid.setGrid(gridArray);
 
       assertTrue(grid.hasValidMoves());
     }
@@ -750,6 +1271,7 @@ class GridTest {
 
       gridArray[0][0] = 2;
       gridArray[0][1] = 4;
+      grid.setGrid(gridArray);
 
       assertTrue(grid.hasValidMoves());
     }
@@ -771,6 +1293,7 @@ class GridTest {
       // Set two adjacent horizontal tiles to same value
       gridArray[0][0] = 2;
       gridArray[0][1] = 2;
+      grid.setGrid(gridArray);
 
       assertTrue(grid.hasValidMoves());
     }
@@ -792,6 +1315,7 @@ class GridTest {
       // Set two adjacent vertical tiles to same value
       gridArray[0][0] = 2;
       gridArray[1][0] = 2;
+      grid.setGrid(gridArray);
 
       assertTrue(grid.hasValidMoves());
     }
@@ -807,6 +1331,7 @@ class GridTest {
           gridArray[i][j] = (i + j) % 2 == 0 ? 2 : 4;
         }
       }
+      grid.setGrid(gridArray);
 
       assertFalse(grid.hasValidMoves());
     }
@@ -822,6 +1347,7 @@ class GridTest {
           gridArray[i][j] = 2;
         }
       }
+      grid.setGrid(gridArray);
 
       assertTrue(grid.hasValidMoves());
     }
@@ -841,6 +1367,7 @@ class GridTest {
       // Create a valid merge at bottom-right corner
       gridArray[3][2] = 2;
       gridArray[3][3] = 2;
+      grid.setGrid(gridArray);
 
       assertTrue(grid.hasValidMoves());
     }
@@ -865,12 +1392,67 @@ class GridTest {
     }
 
     @Test
-    @DisplayName("Should return actual grid reference (mutable)")
-    void testGetGridReturnsMutableReference() {
+    @DisplayName("Should return a copy that only changes the grid through setGrid")
+    void testGetGridReturnsCopy() {
       int[][] gridArray = grid.getGrid();
+      gridArray[0][0] = 1024;
+      assertNotSame(gridArray, grid.getGrid());
+      assertNotEquals(1024, grid.getGrid()[0][0]);
+
+      grid.setGrid(gridArray);
+
+      assertEquals(1024, grid.getGrid()[0][0]);
+      assertEquals(10, grid.getExponent(0, 0));
+    }
+
+    @Test
+    @DisplayName("Should round values down to a power of two when setting the grid")
+    void testSetGridRoundsDown() {
+      int[][] gridArray = new int[4][4];
       gridArray[0][0] = 999;
+      gridArray[0][1] = -4;
+
+      grid.setGrid(gridArray);
+
+      assertEquals(512, grid.getGrid()[0][0]);
+      assertEquals(0, grid.getGrid()[0][1]);
+      assertEquals(1, countNonZeroTiles(grid.getGrid()));
+    }
+
+    @Test
+    @DisplayName("Should reject a board of another size")
+    void testSetGridRejectsOtherSizes() {
+      assertThrows(IllegalArgumentException.class, () -> grid.setGrid(new int[5][5]));
+      assertThrows(IllegalArgumentException.class, () -> grid.setGrid(new int[4][3]));
+    }
+
+    @Test
+    @DisplayName("Should store tiles as log2 exponents")
+    void testGetExponent() {
+      int[][] gridArray = grid.getGrid();
+      clearGrid(gridArray);
+      gridArray[0][0] = 1024;
+      gridArray[0][1] = 1024;
+      grid.setGrid(gridArray);
+
+      grid.move(Direction.LEFT);
+
+      assertEquals(11, grid.getExponent(0, 0));
+      assertEquals(0, grid.getExponent(0, 1));
+      gridArray = grid.getGrid();
+      assertEquals(2048, gridArray[0][0]);
+    }
+
+    @Test
+    @DisplayName("Should hand out the board of the new game after resizing")
+    void testGetGridFollowsResize() {
+      grid.reinit(4);
+      assertEquals(4, grid.getGrid().length);
+      assertEquals(2, countNonZeroTiles(grid.getGrid()));
 
-      assertEquals(999, grid.getGrid()[0][0]);
+      grid.reinit(5);
+      assertEquals(5, grid.getGrid().length);
+      assertEquals(2, countNonZeroTiles(grid.getGrid()));
     }
   }
 
@@ -888,6 +1470,7 @@ class GridTest {
       // Setup initial state
       gridArray[3][0] = 2;
       gridArray[3][1] = 2;
+      testGrid.setGrid(gridArray);
 
       // Make moves
       testGrid.moveAndAddTile(Direction.UP);
@@ -0,0 +1,90 @@
+package com.boxboxjason.games._2048;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Test suite checking the line kernels, vectorized or not, against the scalar loops and slides. */
+@DisplayName("LineKernels Test Suite")
+class LineKernelsTest {
+
+  // Boards ranging from mostly empty to full, with few distinct exponents so that pairs are common
+  private static byte[] randomBoard(int size, SplittableRandom random) {
+    byte[] cells = new byte[size * size];
+    int emptyPercent = random.nextInt(60);
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] = random.nextInt(100) < emptyPercent ? 0 : (byte) (1 + random.nextInt(4));
+    }
+    return cells;
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {2, 3, 4, 5, 6, 7, 8, 9, 10})
+  @DisplayName("Should find an empty cell or a pair exactly when some direction moves")
+  void testScansMatchSlide(int size) {
+    SplittableRandom random = new SplittableRandom(size);
+    byte[] moved = new byte[size * size];
+    for (int trial = 0; trial < 2000; trial++) {
+      byte[] cells = randomBoard(size, random);
+      boolean slides = false;
+      for (Direction direction : Direction.values()) {
+        slides |= Grid.slide(cells, moved, size, direction) != Grid.NO_MOVE;
+      }
+      int empty = LineKernels.countEmpty(cells, size);
+      // A board with no tile at all cannot move, although it has empty cells
+      assertEquals(
+          slides,
+          empty < cells.length && (empty > 0 || LineKernels.hasMergeablePair(cells, size)));
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {2, 4, 6, 8, 10})
+  @DisplayName("Should count empty cells and find mergeable pairs like the scalar loops")
+  void testMatchesScalar(int size) {
+    SplittableRandom random = new SplittableRandom(31L * size);
+    for (int trial = 0; trial < 2000; trial++) {
+      byte[] cells = randomBoard(size, random);
+      assertEquals(LineKernels.countEmptyScalar(cells), LineKernels.countEmpty(cells, size));
+      assertEquals(
+          LineKernels.hasMergeablePairScalar(cells, size),
+          LineKernels.hasMergeablePair(cells, size));
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {6, 10})
+  @DisplayName("Should ignore equal tiles on either side of a row boundary")
+  void testRowBoundary(int size) {
+    byte[] cells = new byte[size * size];
+    // A checkerboard has no mergeable neighbours, only equal cells wrapping across rows
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] = (byte) (1 + (i / size + i % size) % 2);
+    }
+    cells[size - 1] = 3;
+    cells[size] = 3;
+
+    assertFalse(LineKernels.hasMergeablePair(cells, size));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {4, 6, 10})
+  @DisplayName("Should not count two of the largest tiles as a pair")
+  void testLargestTiles(int size) {
+    byte[] cells = new byte[size * size];
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] = (byte) (1 + (i / size + i % size) % 2);
+    }
+    // Pairs in a row and in a column, at both ends so that the vector and tail loops see one each
+    cells[cells.length - 2] = Grid.MAX_EXPONENT;
+    cells[cells.length - 1] = Grid.MAX_EXPONENT;
+    cells[cells.length - 1 - size] = Grid.MAX_EXPONENT;
+    cells[0] = Grid.MAX_EXPONENT;
+    cells[1] = Grid.MAX_EXPONENT;
+
+    assertFalse(LineKernels.hasMergeablePair(cells, size));
+  }
+}
@@ -0,0 +1,198 @@
+package com.boxboxjason.games._2048;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test suite failing when playing moves allocates more or runs slower than the checked-in
+ * baseline.
+ *
+ * <p>Each grid size plays a fixed seeded workload of random moves, several times over: the first
+ * runs warm up the JIT and the best of the others is compared with {@code
+ * performance-baseline.json}. Allocation is measured per thread, so other tests running at the same
+ * time do not count. Moves without undo history allocate nothing, and the one byte of slack per
+ * move is less than any object, so a single allocation per move fails.
+ *
+ * <p>Timing depends on the machine and on what else runs on it, so the time check is tagged {@code
+ * timing} and only runs in the {@code performance} Maven profile. Run with {@code
+ * -Dperformance.updateBaseline=true} to record the current figures into the baseline instead of
+ * checking them, and with {@code -Dperformance.timeTolerance=<ratio>} to loosen the timing check
+ * on a slower machine.
+ */
+@DisplayName("Performance Regression Test Suite")
+class PerformanceRegressionTest {
+  private static final String BASELINE = "performance-baseline.json";
+  private static final Path BASELINE_SOURCE =
+      Path.of("src/test/resources/com/boxboxjason/games/_2048", BASELINE);
+  private static final int MOVES = 50_000;
+  private static final int WARMUP_RUNS = 3;
+  private static final int MEASURED_RUNS = 5;
+  private static final Direction[] DIRECTIONS = Direction.values();
+  private static final boolean UPDATE = Boolean.getBoolean("performance.updateBaseline");
+  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  record Measurement(double bytesPerMove, double nanosPerMove) {}
+
+  static final class Baseline {
+    // A workload fails once it allocates more than (1 + allocationTolerance) times its baseline
+    // plus allocationSlackBytes, or runs more than (1 + timeTolerance) times slower
+    double allocationTolerance;
+    double allocationSlackBytes;
+    double timeTolerance;
+    TreeMap<String, Measurement> workloads = new TreeMap<>();
+  }
+
+  private static com.sun.management.ThreadMXBean threads;
+  private static Baseline baseline;
+  private static final Map<Integer, Measurement> measurements = new HashMap<>();
+
+  @BeforeAll
+  static void loadBaseline() throws IOException {
+    threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    if (threads.isThreadAllocatedMemorySupported()) {
+      threads.setThreadAllocatedMemoryEnabled(true);
+    }
+    try (Reader reader =
+        new InputStreamReader(
+            Objects.requireNonNull(PerformanceRegressionTest.class.getResourceAsStream(BASELINE)),
+            StandardCharsets.UTF_8)) {
+      baseline = GSON.fromJson(reader, Baseline.class);
+    }
+  }
+
+  @AfterAll
+  static void saveBaseline() throws IOException {
+    if (UPDATE) {
+      try (Writer writer = Files.newBufferedWriter(BASELINE_SOURCE)) {
+        GSON.toJson(baseline, writer);
+      }
+    }
+  }
+
+  // Random moves on a seeded grid, starting a new game whenever one ends
+  private static Measurement play(int size) {
+    Grid grid = new Grid(size, new SplittableRandom(size));
+    // Without undo history, so that any allocation per move shows against a baseline of zero
+    grid.setUndoMemoryLimit(0);
+    SplittableRandom moves = new SplittableRandom(-size);
+    long threadId = Thread.currentThread().threadId();
+    long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+    // Starting a new game allocates its boards; only the moves are held to the baseline
+    long newGameBytes = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < MOVES; i++) {
+      if (!grid.hasValidMoves()) {
+        long beforeNewGame = threads.getThreadAllocatedBytes(threadId);
+        grid.reinit(size);
+        newGameBytes += threads.getThreadAllocatedBytes(threadId) - beforeNewGame;
+      }
+      grid.moveAndAddTile(DIRECTIONS[moves.nextInt(DIRECTIONS.length)]);
+    }
+    long nanos = System.nanoTime() - start;
+    long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore - newGameBytes;
+    return new Measurement((double) bytes / MOVES, (double) nanos / MOVES);
+  }
+
+  private static Measurement best(int size) {
+    for (int run = 0; run < WARMUP_RUNS; run++) {
+      play(size);
+    }
+    double bytes = Double.MAX_VALUE;
+    double nanos = Double.MAX_VALUE;
+    for (int run = 0; run < MEASURED_RUNS; run++) {
+      Measurement measurement = play(size);
+      bytes = Math.min(bytes, measurement.bytesPerMove());
+      nanos = Math.min(nanos, measurement.nanosPerMove());
+    }
+    return new Measurement(bytes, nanos);
+  }
+
+  // Measured once per size, for both checks, and recorded into the baseline when updating it
+  private static Measurement measure(int size) {
+    return measurements.computeIfAbsent(
+        size,
+        key -> {
+          Measurement measurement = best(key);
+          if (UPDATE) {
+            baseline.workloads.put(workload(key), measurement);
+          }
+          return measurement;
+        });
+  }
+
+  private static String workload(int size) {
+    return "moveAndAddTile " + size + "x" + size;
+  }
+
+  private static Measurement expected(int size) {
+    Measurement expected = baseline.workloads.get(workload(size));
+    assertNotNull(
+        expected, "No baseline for " + workload(size) + ", record one with updateBaseline");
+    return expected;
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {3, 4, 6, 8, 10})
+  @DisplayName("Should not allocate more per move than the baseline")
+  void testAllocationAgainstBaseline(int size) {
+    assumeTrue(threads.isThreadAllocatedMemorySupported(), "Allocation is not measurable here");
+    Measurement measured = measure(size);
+    assumeFalse(UPDATE, "Recording the baseline");
+
+    Measurement expected = expected(size);
+    double maxBytes =
+        expected.bytesPerMove() * (1 + baseline.allocationTolerance)
+            + baseline.allocationSlackBytes;
+    assertTrue(
+        measured.bytesPerMove() <= maxBytes,
+        () ->
+            String.format(
+                "%s allocates %.1f bytes per move, baseline %.1f",
+                workload(size), measured.bytesPerMove(), expected.bytesPerMove()));
+  }
+
+  // Wall-clock figures depend on the machine, so this check only runs in the performance profile
+  @Tag("timing")
+  @ParameterizedTest
+  @ValueSource(ints = {3, 4, 6, 8, 10})
+  @DisplayName("Should not run slower per move than the baseline")
+  void testTimeAgainstBaseline(int size) {
+    Measurement measured = measure(size);
+    assumeFalse(UPDATE, "Recording the baseline");
+
+    Measurement expected = expected(size);
+    double timeTolerance =
+        Double.parseDouble(
+            System.getProperty(
+                "performance.timeTolerance", Double.toString(baseline.timeTolerance)));
+    assertTrue(
+        measured.nanosPerMove() <= expected.nanosPerMove() * (1 + timeTolerance),
+        () ->
+            String.format(
+                "%s takes %.1f ns per move, baseline %.1f",
+                workload(size), measured.nanosPerMove(), expected.nanosPerMove()));
+  }
+}
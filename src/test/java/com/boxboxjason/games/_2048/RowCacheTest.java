@@ -0,0 +1,119 @@
+package com.boxboxjason.games._2048;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Test suite checking that cached line slides match the merge loop. */
+@DisplayName("RowCache Test Suite")
+class RowCacheTest {
+
+  // Lines ranging from mostly empty to full, with exponents up to maxExponent
+  private static byte[] randomLine(int size, SplittableRandom random, int maxExponent) {
+    byte[] cells = new byte[size];
+    int emptyPercent = random.nextInt(60);
+    for (int i = 0; i < size; i++) {
+      cells[i] = random.nextInt(100) < emptyPercent ? 0 : (byte) (1 + random.nextInt(maxExponent));
+    }
+    return cells;
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {5, 6, 7, 8, 9, 10})
+  @DisplayName("Should slide lines like the merge loop, in place or not, in both directions")
+  void testMatchesMergeLoop(int size) {
+    // Small enough that entries keep being evicted
+    RowCache cache = new RowCache(64);
+    SplittableRandom random = new SplittableRandom(size);
+    for (int trial = 0; trial < 20_000; trial++) {
+      byte[] line = randomLine(size, random, trial % 2 == 0 ? 4 : Grid.MAX_EXPONENT);
+      boolean forward = random.nextBoolean();
+      int start = forward ? 0 : size - 1;
+      int step = forward ? 1 : -1;
+
+      byte[] expected = new byte[size];
+      int expectedGain = Grid.slideLine(line, expected, size, start, step);
+      byte[] actual = new byte[size];
+      assertEquals(expectedGain, cache.slideLine(line, actual, size, start, step));
+      if (expectedGain != Grid.NO_MOVE) {
+        assertArrayEquals(expected, actual);
+      }
+
+      byte[] inPlace = line.clone();
+      assertEquals(expectedGain, cache.slideLine(inPlace, inPlace, size, start, step));
+      assertArrayEquals(expectedGain == Grid.NO_MOVE ? line : expected, inPlace);
+    }
+  }
+
+  @Test
+  @DisplayName("Should write an unmoved line to a separate destination")
+  void testUnmovedLineWritten() {
+    RowCache cache = new RowCache(64);
+    byte[] line = {3, 2, 1, 0, 0};
+    byte[] destination = {9, 9, 9, 9, 9};
+    assertEquals(Grid.NO_MOVE, cache.slideLine(line, destination, 5, 0, 1));
+    assertArrayEquals(line, destination);
+  }
+
+  @Test
+  @DisplayName("Should leave tiles at the cap to the merge loop")
+  void testLargeTiles() {
+    RowCache cache = new RowCache(64);
+    byte max = Grid.MAX_EXPONENT;
+    byte[] line = {max, max, 0, 0, 0};
+    byte[] expected = new byte[5];
+    int expectedGain = Grid.slideLine(line, expected, 5, 0, 1);
+    byte[] destination = new byte[5];
+    assertEquals(expectedGain, cache.slideLine(line, destination, 5, 0, 1));
+    assertArrayEquals(expected, destination);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {5, 8, 10})
+  @DisplayName("Should move whole boards like Grid.slide")
+  void testMatchesGridSlide(int size) {
+    RowCache cache = new RowCache(256);
+    SplittableRandom random = new SplittableRandom(17L * size);
+    byte[] expected = new byte[size * size];
+    byte[] actual = new byte[size * size];
+    for (int trial = 0; trial < 2000; trial++) {
+      byte[] cells = randomLine(size * size, random, 6);
+      for (Direction direction : Direction.values()) {
+        int expectedGain = Grid.slide(cells, expected, size, direction);
+        assertEquals(expectedGain, cache.slide(cells, actual, size, direction));
+        if (expectedGain != Grid.NO_MOVE) {
+          assertArrayEquals(expected, actual);
+        }
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Should count a miss then hits for a repeated line")
+  void testStats() {
+    RowCache cache = new RowCache(64);
+    RowCache.resetStats();
+    byte[] line = {1, 1, 0, 2, 2};
+    byte[] destination = new byte[5];
+    // Counts reach the totals in batches of 1024 lookups
+    for (int i = 0; i < 1024; i++) {
+      cache.slideLine(line, destination, 5, 0, 1);
+    }
+    assertEquals(1023, RowCache.hits());
+    assertEquals(1, RowCache.misses());
+    RowCache.resetStats();
+    assertEquals(0, RowCache.hits());
+  }
+
+  @Test
+  @DisplayName("Should round the capacity to whole sets")
+  void testCapacity() {
+    assertEquals(64, new RowCache(64).capacity());
+    assertEquals(64, new RowCache(100).capacity());
+    assertEquals(4, new RowCache(1).capacity());
+  }
+}
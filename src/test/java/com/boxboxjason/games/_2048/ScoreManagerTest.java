@@ -5,11 +5,20 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /** Test suite for the ScoreManager class. */
 @DisplayName("ScoreManager Test Suite")
@@ -28,6 +37,8 @@ class ScoreManagerTest {
 
   @AfterEach
   void tearDown() throws IOException {
+    // Let the pending write land before the file is removed
+    scoreManager.close();
     Files.deleteIfExists(Path.of(testFilePath));
   }
 
@@ -154,4 +165,118 @@ class ScoreManagerTest {
     assertNotNull(scores);
     assertTrue(scores.isEmpty());
   }
+
+  @Test
+  @DisplayName("addScore should write the file in the background, complete once flushed")
+  void testAddScoreWritesFile() {
+    for (int i = 1; i <= 100; i++) {
+      scoreManager.addScore(new Score("user" + i, i * 100, 4, i * 10000L));
+    }
+    scoreManager.flush();
+
+    List<Score> reloaded = new ScoreManager(testFilePath).getTopScores();
+    assertEquals(10, reloaded.size());
+    assertEquals(10000, reloaded.get(0).getScore());
+    assertEquals(9100, reloaded.get(9).getScore());
+  }
+
+  @Test
+  @DisplayName("Writes should leave no temporary file behind")
+  void testNoTemporaryFiles(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("scores.json");
+    try (ScoreManager manager = new ScoreManager(file.toString())) {
+      for (int i = 0; i < 20; i++) {
+        manager.addScore(new Score("user", i, 4, 1000L));
+        if (i % 5 == 0) {
+          manager.flush();
+        }
+      }
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(List.of(file), files.toList());
+    }
+  }
+
+  @Test
+  @DisplayName("A failed write should keep the file as it was and clean up after itself")
+  void testFailedWrite(@TempDir Path directory) throws IOException {
+    // A non-empty directory cannot be replaced by the written file
+    Path file = directory.resolve("scores.json");
+    Files.createDirectories(file.resolve("blocker"));
+    try (ScoreManager manager = new ScoreManager(file.toString())) {
+      manager.addScore(new Score("user", 1000, 4, 60000L));
+      manager.flush();
+      assertEquals(1, manager.getTopScores().size());
+    }
+    assertTrue(Files.isDirectory(file.resolve("blocker")));
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(List.of(file), files.toList());
+    }
+  }
+
+  @Test
+  @DisplayName("close should write pending scores and refuse new ones")
+  void testClose() {
+    scoreManager.addScore(new Score("user", 1000, 4, 60000L));
+    scoreManager.close();
+
+    assertEquals(1, new ScoreManager(testFilePath).getTopScores().size());
+    assertThrows(
+        IllegalStateException.class,
+        () -> scoreManager.addScore(new Score("late", 2000, 4, 60000L)));
+    // Closing twice is harmless
+    scoreManager.close();
+  }
+
+  @Test
+  @DisplayName("Scores added while closing should be written or refused, never lost")
+  void testAddWhileClosing(@TempDir Path directory) throws InterruptedException {
+    for (int round = 0; round < 20; round++) {
+      String file = directory.resolve("scores-" + round + ".json").toString();
+      ScoreManager manager = new ScoreManager(file);
+      // Rising scores, so the last one accepted must top the file
+      AtomicInteger accepted = new AtomicInteger();
+      AtomicReference<RuntimeException> failure = new AtomicReference<>();
+      Thread adder =
+          new Thread(
+              () -> {
+                for (int score = 1; ; score++) {
+                  try {
+                    manager.addScore(new Score("user", score, 4, 1000L));
+                    accepted.set(score);
+                  } catch (IllegalStateException e) {
+                    return;
+                  } catch (RuntimeException e) {
+                    failure.set(e);
+                    return;
+                  }
+                }
+              });
+      adder.start();
+      Thread.sleep(round % 5);
+      manager.close();
+      adder.join();
+
+      assertNull(failure.get());
+      List<Score> written = new ScoreManager(file).getTopScores();
+      assertEquals(accepted.get(), written.isEmpty() ? 0 : written.get(0).getScore());
+    }
+  }
+
+  @Test
+  @DisplayName("Writes should keep the permissions of the score file")
+  void testKeepsPermissions(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("scores.json");
+    Assumptions.assumeTrue(
+        Files.getFileAttributeView(directory, PosixFileAttributeView.class) != null);
+    Files.writeString(file, "[]");
+    Set<PosixFilePermission> shared = PosixFilePermissions.fromString("rw-r--r--");
+    Files.setPosixFilePermissions(file, shared);
+    try (ScoreManager manager = new ScoreManager(file.toString())) {
+      manager.addScore(new Score("user", 1000, 4, 60000L));
+    }
+
+    assertEquals(shared, Files.getPosixFilePermissions(file));
+    assertEquals(1, new ScoreManager(file.toString()).getTopScores().size());
+  }
 }
@@ -0,0 +1,175 @@
+package com.boxboxjason.games._2048;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.boxboxjason.games._2048.learning.NTupleNetwork;
+import com.boxboxjason.games._2048.learning.TdTrainer;
+import com.boxboxjason.games._2048.solver.CornerStrategy;
+import com.boxboxjason.games._2048.solver.ExactSolver;
+import com.boxboxjason.games._2048.solver.RandomStrategy;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Test suite for the headless simulator. */
+@DisplayName("Simulator Test Suite")
+class SimulatorTest {
+
+  @Nested
+  @DisplayName("Run Tests")
+  class RunTests {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"random", "greedy", "corner"})
+    @DisplayName("Should play every requested game to the end")
+    void testPlaysAllGames(String strategy) {
+      Simulator.Report report =
+          new Simulator(4, 3, Simulator.strategyFactory(strategy)).run(50, 1L);
+
+      assertEquals(50, report.getGames());
+      assertTrue(report.getMoves() >= 50 * report.getLengths().getMin());
+      assertTrue(report.getScores().getMean() > 0);
+      assertTrue(report.getGamesPerSecond() > 0);
+      assertTrue(report.getMovesPerSecond() > report.getGamesPerSecond());
+      long tiles = 0;
+      for (int exponent = 0; exponent < 64; exponent++) {
+        tiles += report.getMaxTileCount(exponent);
+      }
+      assertEquals(50, tiles);
+    }
+
+    @Test
+    @DisplayName("Should give the same report for the same seed and thread count")
+    void testDeterministic() {
+      Simulator simulator = new Simulator(3, 2, RandomStrategy::new);
+      Simulator.Report first = simulator.run(30, 5L);
+      Simulator.Report second = simulator.run(30, 5L);
+
+      assertEquals(first.getMoves(), second.getMoves());
+      assertEquals(first.getScores().getSum(), second.getScores().getSum());
+    }
+
+    @Test
+    @DisplayName("Should beat random play with the corner strategy")
+    void testCornerBeatsRandom() {
+      double random = new Simulator(4, 2, RandomStrategy::new).run(200, 7L).getScores().getMean();
+      double corner =
+          new Simulator(4, 2, r -> new CornerStrategy()).run(200, 7L).getScores().getMean();
+
+      assertTrue(corner > random, "corner " + corner + " vs random " + random);
+    }
+
+    @Test
+    @DisplayName("Should play an n-tuple network loaded from a file")
+    void testNTupleNetwork(@TempDir Path directory) throws IOException {
+      Path file = directory.resolve("ntuple.bin");
+      NTupleNetwork network = new NTupleNetwork(NTupleNetwork.SMALL_TUPLES);
+      new TdTrainer(network).train(20, 1, 3L);
+      network.save(file);
+
+      Simulator.Report report =
+          new Simulator(4, 2, Simulator.strategyFactory("ntuple:" + file)).run(20, 5L);
+      assertEquals(20, report.getGames());
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> Simulator.strategyFactory("ntuple:" + directory.resolve("missing.bin")));
+    }
+
+    @Test
+    @DisplayName("Should play Monte Carlo with the given number of playouts")
+    void testMonteCarlo() {
+      Simulator.Report report =
+          new Simulator(3, 1, Simulator.strategyFactory("montecarlo:2")).run(2, 3L);
+
+      assertEquals(2, report.getGames());
+      assertTrue(report.getScores().getMean() > 0);
+      assertThrows(
+          IllegalArgumentException.class, () -> Simulator.strategyFactory("montecarlo:many"));
+    }
+
+    @Test
+    @DisplayName("Should load strategies by class name")
+    void testStrategyByClassName() {
+      assertNotNull(
+          Simulator.strategyFactory("com.boxboxjason.games._2048.solver.GreedyStrategy")
+              .apply(null));
+      assertThrows(IllegalArgumentException.class, () -> Simulator.strategyFactory("nope"));
+      assertThrows(
+          IllegalArgumentException.class, () -> Simulator.strategyFactory("java.lang.String"));
+    }
+
+    @Test
+    @DisplayName("Should play an exact policy loaded from a file")
+    void testExactPolicy(@TempDir Path directory) throws IOException {
+      Path file = directory.resolve("policy-2x2.bin");
+      new ExactSolver(2, 1).solve().save(file);
+
+      Simulator.Report report =
+          new Simulator(2, 2, Simulator.strategyFactory("exact:" + file)).run(100, 5L);
+      assertEquals(100, report.getGames());
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> Simulator.strategyFactory("exact:" + directory.resolve("missing.bin")));
+    }
+
+    @Test
+    @DisplayName("Should format a readable report")
+    void testFormat() {
+      String text = new Simulator(2, 1, RandomStrategy::new).run(10, 3L).format();
+
+      assertTrue(text.startsWith("10 games"));
+      assertTrue(text.contains("games/s"));
+      assertTrue(text.contains("Max tile:"));
+    }
+  }
+
+  @Nested
+  @DisplayName("Distribution Tests")
+  class DistributionTests {
+
+    @Test
+    @DisplayName("Should track count, sum and bounds exactly")
+    void testSummary() {
+      Simulator.Distribution distribution = new Simulator.Distribution();
+      for (long value = 1; value <= 100; value++) {
+        distribution.add(value);
+      }
+
+      assertEquals(100, distribution.getCount());
+      assertEquals(5050, distribution.getSum());
+      assertEquals(1, distribution.getMin());
+      assertEquals(100, distribution.getMax());
+      assertEquals(50.5, distribution.getMean());
+    }
+
+    @Test
+    @DisplayName("Should estimate percentiles within one bucket")
+    void testPercentiles() {
+      Simulator.Distribution distribution = new Simulator.Distribution();
+      for (long value = 1; value <= 10_000; value++) {
+        distribution.add(value);
+      }
+
+      assertEquals(5000, distribution.percentile(0.5), 5000 * 0.125);
+      assertEquals(9900, distribution.percentile(0.99), 9900 * 0.125);
+      assertEquals(1, distribution.percentile(0.0));
+    }
+
+    @Test
+    @DisplayName("Should map every value into the bucket that starts at or below it")
+    void testBuckets() {
+      for (long value : new long[] {0, 7, 8, 15, 16, 1000, 123_456_789L, Long.MAX_VALUE}) {
+        int bucket = Simulator.Distribution.bucket(value);
+        assertTrue(Simulator.Distribution.lowerBound(bucket) <= value);
+        assertTrue(
+            value == Long.MAX_VALUE || Simulator.Distribution.lowerBound(bucket + 1) > value,
+            "value " + value);
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.boxboxjason.games._2048.learning;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.boxboxjason.games._2048.BitBoard;
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Test suite for the n-tuple network, its TD trainer and the strategy playing it. */
+@DisplayName("NTupleNetwork Test Suite")
+class NTupleNetworkTest {
+
+  @Nested
+  @DisplayName("Network Tests")
+  class NetworkTests {
+
+    @Test
+    @DisplayName("Should give symmetric boards the same value")
+    void testSymmetryInvariance() {
+      NTupleNetwork network = new NTupleNetwork(NTupleNetwork.SMALL_TUPLES);
+      long board = BitBoard.spawn(BitBoard.spawn(0x1230_0000_0002_0041L, rng()), rng());
+      network.update(board, 0.5f);
+
+      double value = network.value(board);
+      assertNotEquals(0.0, value);
+      assertEquals(value, network.value(BitBoard.transpose(board)), 1e-4);
+      assertEquals(value, network.value(BitBoard.mirror(board)), 1e-4);
+      assertEquals(value, network.value(BitBoard.flip(board)), 1e-4);
+    }
+
+    @Test
+    @DisplayName("Should reject invalid tuples")
+    void testInvalidTuples() {
+      assertThrows(IllegalArgumentException.class, () -> new NTupleNetwork(new int[][] {{}}));
+      assertThrows(IllegalArgumentException.class, () -> new NTupleNetwork(new int[][] {{0, 16}}));
+    }
+
+    @Test
+    @DisplayName("Should load the same values it saved")
+    void testSaveLoadRoundTrip(@TempDir Path dir) throws IOException {
+      NTupleNetwork network = new NTupleNetwork(NTupleNetwork.SMALL_TUPLES);
+      new TdTrainer(network).train(20, 1, 5L);
+      Path file = dir.resolve("weights.ntn");
+      network.save(file);
+
+      NTupleNetwork loaded = NTupleNetwork.load(file);
+      SplittableRandom random = rng();
+      long board = 0L;
+      for (int i = 0; i < 10; i++) {
+        board = BitBoard.spawn(board, random);
+        assertEquals(network.value(board), loaded.value(board));
+      }
+      assertArrayEquals(NTupleNetwork.SMALL_TUPLES, loaded.getTuples());
+    }
+
+    @Test
+    @DisplayName("Should keep updates to a loaded network out of the file")
+    void testLoadedNetworkIsPrivate(@TempDir Path dir) throws IOException {
+      Path file = dir.resolve("weights.ntn");
+      new NTupleNetwork(NTupleNetwork.SMALL_TUPLES).save(file);
+
+      NTupleNetwork loaded = NTupleNetwork.load(file);
+      loaded.update(0x21L, 1.0f);
+      assertNotEquals(0.0, loaded.value(0x21L));
+      assertEquals(0.0, NTupleNetwork.load(file).value(0x21L));
+    }
+
+    @Test
+    @DisplayName("Should reject files that are not networks")
+    void testLoadRejectsGarbage(@TempDir Path dir) throws IOException {
+      Path file = dir.resolve("garbage");
+      Files.writeString(file, "not a network");
+      assertThrows(IOException.class, () -> NTupleNetwork.load(file));
+    }
+  }
+
+  @Nested
+  @DisplayName("Training Tests")
+  class TrainingTests {
+
+    @Test
+    @DisplayName("Should report statistics for every game played")
+    void testTrainingStats() {
+      TdTrainer.Stats stats =
+          new TdTrainer(new NTupleNetwork(NTupleNetwork.SMALL_TUPLES)).train(40, 2, 1L);
+
+      assertEquals(40, stats.games());
+      assertTrue(stats.moves() > 40);
+      assertTrue(stats.meanScore() > 0);
+      assertTrue(stats.maxExponent() >= 5);
+      assertTrue(stats.gamesPerSecond() > 0);
+    }
+
+    @Test
+    @DisplayName("Should improve on the untrained network")
+    void testLearns() {
+      TdTrainer trainer = new TdTrainer(new NTupleNetwork(NTupleNetwork.SMALL_TUPLES));
+      double before = trainer.train(200, 2, 3L).meanScore();
+      trainer.train(1500, 2, 4L);
+      double after = trainer.train(200, 2, 5L).meanScore();
+
+      assertTrue(after > before, "Mean score went from " + before + " to " + after);
+    }
+  }
+
+  @Nested
+  @DisplayName("Strategy Tests")
+  class StrategyTests {
+
+    @Test
+    @DisplayName("Should only choose moves that change the grid")
+    void testLegalMoves() {
+      NTupleNetwork network = new NTupleNetwork(NTupleNetwork.SMALL_TUPLES);
+      new TdTrainer(network).train(50, 1, 9L);
+      NTupleStrategy strategy = new NTupleStrategy(network);
+      Grid grid = new Grid(4, 11L);
+
+      while (grid.hasValidMoves()) {
+        Direction direction = strategy.chooseMove(grid);
+        assertNotNull(direction);
+        assertTrue(grid.moveAndAddTile(direction));
+      }
+      assertNull(strategy.chooseMove(grid));
+    }
+
+    @Test
+    @DisplayName("Should reject grids other than 4x4")
+    void testRejectsOtherSizes() {
+      NTupleStrategy strategy = new NTupleStrategy(new NTupleNetwork(NTupleNetwork.SMALL_TUPLES));
+      assertThrows(IllegalArgumentException.class, () -> strategy.chooseMove(new Grid(5, 1L)));
+    }
+  }
+
+  private static SplittableRandom rng() {
+    return new SplittableRandom(42L);
+  }
+}
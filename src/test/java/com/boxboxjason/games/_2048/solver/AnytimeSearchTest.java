@@ -0,0 +1,93 @@
+package com.boxboxjason.games._2048.solver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Test suite for the time-bounded iterative-deepening search. */
+@DisplayName("AnytimeSearch Test Suite")
+class AnytimeSearchTest {
+  private final ForkJoinPool pool = new ForkJoinPool(2);
+
+  private AnytimeSearch search(Duration budget) {
+    return new AnytimeSearch(budget, 8, new HeapTranspositionTable(1 << 16), pool);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {3, 4, 6, 10})
+  @DisplayName("Should answer within the budget whatever the board size")
+  void testStaysWithinBudget(int size) {
+    Grid grid = new Grid(size, size);
+    AnytimeSearch search = search(Duration.ofMillis(20));
+
+    long start = System.nanoTime();
+    Direction move = search.chooseMove(grid);
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    assertNotNull(move);
+    // Generous slack for the polling interval and a loaded test machine
+    assertTrue(elapsedMillis < 250, "Took " + elapsedMillis + " ms");
+  }
+
+  @Test
+  @DisplayName("Should search deeper with more time")
+  void testDeepensWithTime() {
+    byte[] cells = {1, 0, 0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1};
+    AnytimeSearch.Result quick =
+        search(Duration.ZERO).search(cells, 4, Deadline.after(Duration.ZERO));
+    AnytimeSearch.Result slow = search(Duration.ZERO).search(cells, 4, Deadline.none());
+
+    assertEquals(0, quick.depth());
+    assertNotNull(quick.move());
+    assertEquals(8, slow.depth());
+  }
+
+  @Test
+  @DisplayName("Should match the fixed-depth solver once the depth completes")
+  void testMatchesFixedDepth() {
+    byte[] cells = {1, 2, 0, 0, 0, 0, 0, 0, 3};
+    AnytimeSearch anytime =
+        new AnytimeSearch(Duration.ZERO, 2, new HeapTranspositionTable(64), pool);
+    double[] expected = new ExpectimaxSolver(2).evaluateMoves(cells, 3);
+
+    AnytimeSearch.Result result = anytime.search(cells, 3, Deadline.none());
+
+    assertEquals(2, result.depth());
+    assertArrayEquals(expected, result.values(), 1e-3);
+  }
+
+  @Test
+  @DisplayName("Should stop promptly when cancelled from another thread")
+  void testCancellation() throws InterruptedException {
+    Grid grid = new Grid(8, 5L);
+    Deadline deadline = Deadline.none();
+    AnytimeSearch search =
+        new AnytimeSearch(Duration.ZERO, 20, new HeapTranspositionTable(1 << 16), pool);
+    AnytimeSearch.Result[] result = new AnytimeSearch.Result[1];
+    Thread worker = new Thread(() -> result[0] = search.search(grid, deadline));
+
+    worker.start();
+    Thread.sleep(50);
+    deadline.cancel();
+    worker.join(2000);
+
+    assertFalse(worker.isAlive());
+    assertTrue(deadline.isExpired());
+    assertNotNull(result[0].move());
+    assertTrue(result[0].depth() < 20);
+  }
+
+  @Test
+  @DisplayName("Should return null when no move is possible")
+  void testNoLegalMove() {
+    byte[] cells = {1, 2, 2, 1};
+    assertNull(search(Duration.ofMillis(5)).search(cells, 2, Deadline.none()).move());
+  }
+}
@@ -0,0 +1,201 @@
+package com.boxboxjason.games._2048.solver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Test suite checking the exact 2x2 solution against a plain recursive expectimax. */
+@DisplayName("ExactSolver Test Suite")
+class ExactSolverTest {
+  private static AfterstateValues values;
+  private static ExactPolicy policy;
+
+  @BeforeAll
+  static void solve() {
+    ExactSolver.Solution solution = new ExactSolver(2, 2).solveWithValues();
+    values = solution.values();
+    policy = solution.policy();
+  }
+
+  // Boards before each move of random games, so that they are not only the ones optimal play meets
+  private static List<byte[]> randomBoards(int games) {
+    SplittableRandom random = new SplittableRandom(11L);
+    Direction[] directions = Direction.values();
+    List<byte[]> boards = new ArrayList<>();
+    for (int game = 0; game < games; game++) {
+      Grid grid = new Grid(2, random.split());
+      while (grid.hasValidMoves()) {
+        byte[] cells = new byte[4];
+        grid.copyCells(cells);
+        boards.add(cells);
+        grid.moveAndAddTile(directions[random.nextInt(directions.length)]);
+      }
+    }
+    return boards;
+  }
+
+  // Expected score still to be gained under optimal play, by exhaustive search
+  private static double bruteForce(byte[] board, Map<String, Double> memo) {
+    String key = Arrays.toString(board);
+    Double known = memo.get(key);
+    if (known != null) {
+      return known;
+    }
+    double best = 0.0;
+    byte[] after = new byte[board.length];
+    for (Direction direction : Direction.values()) {
+      int gain = Grid.slide(board, after, 2, direction);
+      if (gain == Grid.NO_MOVE) {
+        continue;
+      }
+      double expected = 0.0;
+      int empty = 0;
+      for (int cell = 0; cell < after.length; cell++) {
+        if (after[cell] == 0) {
+          empty++;
+          byte[] spawned = after.clone();
+          spawned[cell] = 1;
+          expected += 0.9 * bruteForce(spawned, memo);
+          spawned[cell] = 2;
+          expected += 0.1 * bruteForce(spawned, memo);
+        }
+      }
+      best = Math.max(best, gain + expected / empty);
+    }
+    memo.put(key, best);
+    return best;
+  }
+
+  @Nested
+  @DisplayName("Solution Tests")
+  class SolutionTests {
+
+    @Test
+    @DisplayName("Should match exhaustive search on every opening")
+    void testMatchesBruteForce() {
+      Map<String, Double> memo = new HashMap<>();
+      for (int a = 0; a < 4; a++) {
+        for (int b = a + 1; b < 4; b++) {
+          for (byte tileA = 1; tileA <= 2; tileA++) {
+            for (byte tileB = 1; tileB <= 2; tileB++) {
+              byte[] board = new byte[4];
+              board[a] = tileA;
+              board[b] = tileB;
+              double expected = bruteForce(board, memo);
+              assertEquals(expected, values.expectedScore(board), 1e-4 * expected);
+            }
+          }
+        }
+      }
+    }
+
+    @Test
+    @DisplayName("Should value symmetric boards alike")
+    void testSymmetry() {
+      byte[] board = {1, 2, 0, 3};
+      byte[] mirrored = {2, 1, 3, 0};
+      assertEquals(values.expectedScore(board), values.expectedScore(mirrored));
+      Direction move = policy.chooseMove(board);
+      Direction mirroredMove = policy.chooseMove(mirrored);
+      switch (move) {
+        case LEFT -> assertEquals(Direction.RIGHT, mirroredMove);
+        case RIGHT -> assertEquals(Direction.LEFT, mirroredMove);
+        default -> assertEquals(move, mirroredMove);
+      }
+    }
+
+    @Test
+    @DisplayName("Should store a move of the highest value for every reachable board")
+    void testMovesMatchValues() {
+      for (byte[] board : randomBoards(500)) {
+        double[] moveValues = values.evaluateMoves(board);
+        double best = Arrays.stream(moveValues).filter(v -> !Double.isNaN(v)).max().orElseThrow();
+        Direction move = policy.chooseMove(board);
+        assertEquals(best, moveValues[move.ordinal()], Arrays.toString(board));
+      }
+      assertNull(policy.chooseMove(new byte[] {1, 2, 2, 1}));
+      assertTrue(policy.getStateCount() > 0);
+    }
+
+    @Test
+    @DisplayName("Should play the most scoring move when a tile is too large for the key")
+    void testTilesAboveKey() {
+      // 2^16 does not fit in the 4 bits of a key cell: it would spill into a neighbour's and alias
+      // a stored board whose best move is LEFT. UP and LEFT both gain nothing, UP coming first.
+      assertEquals(Direction.UP, policy.chooseMove(new byte[] {0, 1, 2, 16}));
+    }
+
+    @Test
+    @DisplayName("Should play whole games to the end")
+    void testPlays() {
+      Grid grid = new Grid(2, 3L);
+      int moves = 0;
+      Direction move;
+      while ((move = policy.chooseMove(grid)) != null) {
+        assertTrue(grid.moveAndAddTile(move));
+        moves++;
+      }
+      assertFalse(grid.hasValidMoves());
+      assertTrue(moves > 0);
+      assertThrows(IllegalArgumentException.class, () -> policy.chooseMove(new Grid(3)));
+    }
+
+    @Test
+    @DisplayName("Should reject sizes that cannot be solved exactly")
+    void testSizes() {
+      assertThrows(IllegalArgumentException.class, () -> new ExactSolver(4, 1));
+      assertThrows(IllegalArgumentException.class, () -> new ExactSolver(2, 0));
+    }
+  }
+
+  @Nested
+  @DisplayName("Persistence Tests")
+  class PersistenceTests {
+
+    @Test
+    @DisplayName("Should load a saved policy with the same moves")
+    void testRoundTrip(@TempDir Path directory) throws IOException {
+      Path file = directory.resolve("policy-2x2.bin");
+      policy.save(file);
+      ExactPolicy loaded = ExactPolicy.load(file);
+
+      assertEquals(policy.getSize(), loaded.getSize());
+      assertEquals(policy.getStateCount(), loaded.getStateCount());
+      for (byte[] board : randomBoards(50)) {
+        assertEquals(policy.chooseMove(board), loaded.chooseMove(board));
+      }
+      // About a byte per board for the keys and 2 bits for its move
+      assertTrue(Files.size(file) < 64 + 2L * policy.getStateCount(), () -> file + " too large");
+    }
+
+    @Test
+    @DisplayName("Should reject files that are not policies or are truncated")
+    void testInvalidFiles(@TempDir Path directory) throws IOException {
+      Path garbage = directory.resolve("garbage.bin");
+      Files.write(garbage, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+      assertThrows(IOException.class, () -> ExactPolicy.load(garbage));
+
+      Path file = directory.resolve("policy.bin");
+      policy.save(file);
+      byte[] bytes = Files.readAllBytes(file);
+      Path truncated = directory.resolve("truncated.bin");
+      Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+      assertThrows(IOException.class, () -> ExactPolicy.load(truncated));
+    }
+  }
+}
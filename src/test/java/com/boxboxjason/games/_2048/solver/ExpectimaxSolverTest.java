@@ -0,0 +1,240 @@
+package com.boxboxjason.games._2048.solver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** Test suite for the expectimax solver and its transposition table. */
+@DisplayName("ExpectimaxSolver Test Suite")
+class ExpectimaxSolverTest {
+
+  @Nested
+  @DisplayName("Move Selection Tests")
+  class MoveSelectionTests {
+
+    @Test
+    @DisplayName("Should return null when no move is possible")
+    void testNoLegalMove() {
+      byte[] cells = {1, 2, 2, 1};
+      assertNull(new ExpectimaxSolver(2).chooseMove(cells, 2));
+    }
+
+    @Test
+    @DisplayName("Should only consider legal moves")
+    void testOnlyLegalMoves() {
+      // 2 4 / 8 _ : only RIGHT and DOWN move a tile
+      byte[] cells = {1, 2, 3, 0};
+      ExpectimaxSolver solver = new ExpectimaxSolver(2);
+      double[] values = solver.evaluateMoves(cells, 2);
+
+      assertTrue(Double.isNaN(values[Direction.UP.ordinal()]));
+      assertTrue(Double.isNaN(values[Direction.LEFT.ordinal()]));
+      assertFalse(Double.isNaN(values[Direction.RIGHT.ordinal()]));
+      Direction chosen = solver.chooseMove(cells, 2);
+      assertTrue(chosen == Direction.RIGHT || chosen == Direction.DOWN);
+    }
+
+    @Test
+    @DisplayName("Should not modify the grid it is asked about")
+    void testLeavesGridUntouched() {
+      Grid grid = new Grid(4, 3L);
+      String before = grid.toString();
+
+      assertNotNull(new ExpectimaxSolver(2).chooseMove(grid));
+
+      assertEquals(before, grid.toString());
+      assertEquals(0, grid.getScore());
+    }
+
+    @Test
+    @DisplayName("Should play a 4x4 game well past what random play reaches")
+    void testPlaysWell() {
+      Grid grid = new Grid(4, 2048L);
+      ExpectimaxSolver solver =
+          new ExpectimaxSolver(
+              2,
+              ExpectimaxSolver.DEFAULT_PROBABILITY_CUTOFF,
+              new HeapTranspositionTable(1 << 16),
+              new ForkJoinPool(2));
+      int maxExponent = 0;
+      for (int moves = 0; moves < 400 && grid.hasValidMoves(); moves++) {
+        grid.moveAndAddTile(solver.chooseMove(grid));
+      }
+      for (int row = 0; row < 4; row++) {
+        for (int col = 0; col < 4; col++) {
+          maxExponent = Math.max(maxExponent, grid.getExponent(row, col));
+        }
+      }
+      assertTrue(maxExponent >= 8, "Expected at least a 256 tile, got 2^" + maxExponent);
+    }
+  }
+
+  @Nested
+  @DisplayName("Transposition Table Tests")
+  class TranspositionTableTests {
+
+    @Test
+    @DisplayName("Should round the capacity up to a power of two")
+    void testCapacity() {
+      assertEquals(1024, new HeapTranspositionTable(1000).capacity());
+      assertThrows(IllegalArgumentException.class, () -> new HeapTranspositionTable(0));
+    }
+
+    @Test
+    @DisplayName("Should return stored values for deep enough searches only")
+    void testProbeDepth() {
+      TranspositionTable table = new HeapTranspositionTable(64);
+      table.store(12345L, 3, 42.5);
+
+      assertEquals(42.5, table.probe(12345L, 3));
+      assertEquals(42.5, table.probe(12345L, 1));
+      assertTrue(Double.isNaN(table.probe(12345L, 4)));
+      assertTrue(Double.isNaN(table.probe(54321L, 1)));
+    }
+
+    @Test
+    @DisplayName("Should miss on empty slots and after clearing")
+    void testEmptyAndClear() {
+      TranspositionTable table = new HeapTranspositionTable(64);
+      assertTrue(Double.isNaN(table.probe(0L, 0)));
+
+      table.store(7L, 0, 1.0);
+      assertEquals(1.0, table.probe(7L, 0));
+      table.clear();
+      assertTrue(Double.isNaN(table.probe(7L, 0)));
+    }
+
+    @Test
+    @DisplayName("Should replace colliding keys")
+    void testCollisionReplaces() {
+      TranspositionTable table = new HeapTranspositionTable(1);
+      table.store(1L, 2, 10.0);
+      table.store(2L, 2, 20.0);
+
+      assertTrue(Double.isNaN(table.probe(1L, 2)));
+      assertEquals(20.0, table.probe(2L, 2));
+    }
+  }
+
+  @Nested
+  @DisplayName("Off-Heap Transposition Table Tests")
+  class OffHeapTableTests {
+
+    @Test
+    @DisplayName("Should size the table in whole buckets")
+    void testCapacity() {
+      try (OffHeapTranspositionTable table = new OffHeapTranspositionTable(1000)) {
+        assertEquals(512, table.byteSize());
+        assertEquals(32, table.capacity());
+      }
+      assertThrows(IllegalArgumentException.class, () -> new OffHeapTranspositionTable(32));
+    }
+
+    @Test
+    @DisplayName("Should return stored values for deep enough searches only")
+    void testProbeDepth() {
+      try (OffHeapTranspositionTable table = new OffHeapTranspositionTable(1 << 10)) {
+        table.store(12345L, 3, 42.5);
+
+        assertEquals(42.5, table.probe(12345L, 3));
+        assertEquals(42.5, table.probe(12345L, 1));
+        assertTrue(Double.isNaN(table.probe(12345L, 4)));
+        assertTrue(Double.isNaN(table.probe(54321L, 1)));
+        assertTrue(Double.isNaN(table.probe(0L, 0)));
+      }
+    }
+
+    @Test
+    @DisplayName("Should forget everything on clear, through many versions")
+    void testClear() {
+      try (OffHeapTranspositionTable table = new OffHeapTranspositionTable(64)) {
+        for (int round = 0; round < 70_000; round++) {
+          table.store(7L, 0, round);
+          assertEquals(round, table.probe(7L, 0));
+          table.clear();
+          assertTrue(Double.isNaN(table.probe(7L, 0)));
+        }
+      }
+    }
+
+    @Test
+    @DisplayName("Should keep the deeper result and evict the shallowest entry of a full bucket")
+    void testReplacement() {
+      // A single bucket of 4 entries
+      try (OffHeapTranspositionTable table = new OffHeapTranspositionTable(64)) {
+        table.store(1L, 5, 10.0);
+        table.store(1L, 2, 11.0);
+        assertEquals(10.0, table.probe(1L, 5));
+
+        table.store(2L, 1, 20.0);
+        table.store(3L, 3, 30.0);
+        table.store(4L, 4, 40.0);
+        table.store(5L, 2, 50.0);
+        assertTrue(Double.isNaN(table.probe(2L, 0)));
+        assertEquals(10.0, table.probe(1L, 0));
+        assertEquals(30.0, table.probe(3L, 0));
+        assertEquals(40.0, table.probe(4L, 0));
+        assertEquals(50.0, table.probe(5L, 0));
+      }
+    }
+
+    @Test
+    @DisplayName("Should never return another key's value under concurrent writes")
+    void testConcurrentWrites() throws InterruptedException {
+      try (OffHeapTranspositionTable table = new OffHeapTranspositionTable(1 << 12)) {
+        Thread[] writers = new Thread[4];
+        AtomicInteger wrong = new AtomicInteger();
+        for (int t = 0; t < writers.length; t++) {
+          long seed = t;
+          writers[t] =
+              new Thread(
+                  () -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    for (int i = 0; i < 200_000; i++) {
+                      long key = random.nextLong(1, 5000);
+                      table.store(key, 1, key);
+                      long other = random.nextLong(1, 5000);
+                      double found = table.probe(other, 1);
+                      if (!Double.isNaN(found) && found != other) {
+                        wrong.incrementAndGet();
+                      }
+                    }
+                  });
+          writers[t].start();
+        }
+        for (Thread writer : writers) {
+          writer.join();
+        }
+        assertEquals(0, wrong.get());
+      }
+    }
+
+    @Test
+    @DisplayName("Should back a search as well as the heap table")
+    void testSearch() {
+      try (OffHeapTranspositionTable table = new OffHeapTranspositionTable(1 << 20)) {
+        ExpectimaxSolver solver =
+            new ExpectimaxSolver(
+                2, ExpectimaxSolver.DEFAULT_PROBABILITY_CUTOFF, table, new ForkJoinPool(2));
+        Grid grid = new Grid(4, 2048L);
+        for (int moves = 0; moves < 400 && grid.hasValidMoves(); moves++) {
+          grid.moveAndAddTile(solver.chooseMove(grid));
+        }
+        int maxExponent = 0;
+        for (int row = 0; row < 4; row++) {
+          for (int col = 0; col < 4; col++) {
+            maxExponent = Math.max(maxExponent, grid.getExponent(row, col));
+          }
+        }
+        assertTrue(maxExponent >= 8, "Expected at least a 256 tile, got 2^" + maxExponent);
+      }
+    }
+  }
+}
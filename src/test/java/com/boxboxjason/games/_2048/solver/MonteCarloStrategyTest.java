@@ -0,0 +1,86 @@
+package com.boxboxjason.games._2048.solver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Test suite for the Monte Carlo rollout strategy. */
+@DisplayName("MonteCarloStrategy Test Suite")
+class MonteCarloStrategyTest {
+  private final ForkJoinPool pool = new ForkJoinPool(3);
+
+  @Test
+  @DisplayName("Should return null when no move is possible")
+  void testNoLegalMove() {
+    byte[] cells = {1, 2, 2, 1};
+    assertNull(new MonteCarloStrategy(10).chooseMove(cells, 2));
+  }
+
+  @Test
+  @DisplayName("Should give the same answer for the same seed")
+  void testDeterministicForSeed() {
+    byte[] cells = new byte[25];
+    cells[0] = 1;
+    cells[7] = 2;
+    cells[13] = 1;
+
+    double[] first =
+        new MonteCarloStrategy(40, new SplittableRandom(9L), pool).evaluateMoves(cells, 5);
+    double[] second =
+        new MonteCarloStrategy(40, new SplittableRandom(9L), pool).evaluateMoves(cells, 5);
+
+    assertArrayEquals(first, second);
+  }
+
+  @Test
+  @DisplayName("Should report playout throughput")
+  void testThroughputReporting() {
+    MonteCarloStrategy strategy = new MonteCarloStrategy(25, new SplittableRandom(1L), pool);
+    byte[] cells = {1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1};
+
+    strategy.chooseMove(cells, 4);
+
+    // LEFT, RIGHT, UP and DOWN are all legal here
+    assertEquals(100, strategy.getTotalPlayouts());
+    assertTrue(strategy.getPlayoutsPerSecond() > 0);
+    assertTrue(strategy.getAveragePlayoutsPerSecond() > 0);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {2, 3, 4, 6})
+  @DisplayName("Playouts should run until the board is lost")
+  void testPlayoutEndsGame(int size) {
+    byte[] board = new byte[size * size];
+    board[0] = 1;
+    long gained = Playouts.play(board, size, new SplittableRandom(size));
+
+    assertTrue(gained >= 0);
+    for (Direction direction : Direction.values()) {
+      assertEquals(Grid.NO_MOVE, Grid.slide(board, new byte[board.length], size, direction));
+    }
+  }
+
+  @Test
+  @DisplayName("Should play a 4x4 game past what random play reaches")
+  void testPlaysWell() {
+    Grid grid = new Grid(4, 77L);
+    MonteCarloStrategy strategy = new MonteCarloStrategy(20, new SplittableRandom(77L), pool);
+    for (int moves = 0; moves < 300 && grid.hasValidMoves(); moves++) {
+      grid.moveAndAddTile(strategy.chooseMove(grid));
+    }
+    int maxExponent = 0;
+    for (int row = 0; row < 4; row++) {
+      for (int col = 0; col < 4; col++) {
+        maxExponent = Math.max(maxExponent, grid.getExponent(row, col));
+      }
+    }
+    assertTrue(maxExponent >= 7, "Expected at least a 128 tile, got 2^" + maxExponent);
+  }
+}
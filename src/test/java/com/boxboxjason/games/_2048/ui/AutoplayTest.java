@@ -0,0 +1,102 @@
+package com.boxboxjason.games._2048.ui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.boxboxjason.games._2048.Grid;
+import com.boxboxjason.games._2048.solver.AnytimeSearch;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Test suite for autoplay, publishing directly instead of on the FX thread. */
+@DisplayName("Autoplay Test Suite")
+class AutoplayTest {
+  private final Autoplay autoplay =
+      new Autoplay(
+          new AnytimeSearch(Duration.ofMillis(5)), Autoplay.AS_FAST_AS_POSSIBLE, Runnable::run);
+
+  @AfterEach
+  void tearDown() {
+    autoplay.close();
+  }
+
+  @Test
+  @DisplayName("Should play until the game is over and report every move")
+  void testPlaysToTheEnd() throws InterruptedException {
+    Grid grid = new Grid(3, 1L);
+    CountDownLatch over = new CountDownLatch(1);
+    AtomicInteger frames = new AtomicInteger();
+    AtomicReference<int[][]> last = new AtomicReference<>();
+
+    autoplay.start(
+        grid,
+        (values, score) -> {
+          frames.incrementAndGet();
+          last.set(values);
+        },
+        over::countDown);
+
+    assertTrue(over.await(30, TimeUnit.SECONDS));
+    autoplay.stop();
+    assertFalse(grid.hasValidMoves());
+    assertEquals(autoplay.getMoves(), frames.get());
+    assertArrayEquals(grid.getGrid(), last.get());
+    assertNotSame(grid.getGrid(), last.get());
+  }
+
+  @Test
+  @DisplayName("Should keep to the chosen move rate")
+  void testRateLimited() throws InterruptedException {
+    autoplay.setRate(20);
+    autoplay.start(new Grid(6, 2L), (values, score) -> {}, () -> {});
+
+    Thread.sleep(300);
+    autoplay.stop();
+
+    // 300 ms at 20 moves per second is 6 moves, plus the first one played at once
+    assertTrue(autoplay.getMoves() >= 1);
+    assertTrue(autoplay.getMoves() <= 8, "Played " + autoplay.getMoves() + " moves");
+  }
+
+  @ParameterizedTest
+  @ValueSource(doubles = {100, 1000, Autoplay.AS_FAST_AS_POSSIBLE})
+  @DisplayName("Should reach the chosen move rate, up to as fast as possible")
+  void testReachesRate(double rate) throws InterruptedException {
+    autoplay.setRate(rate);
+    long start = System.nanoTime();
+    autoplay.start(new Grid(8, 4L), (values, score) -> {}, () -> {});
+    Thread.sleep(1000);
+    autoplay.stop();
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    double achieved = autoplay.getMoves() / seconds;
+    if (rate == Autoplay.AS_FAST_AS_POSSIBLE) {
+      assertTrue(achieved > 1000, "Played " + achieved + " moves per second");
+    } else {
+      // Slow machines may fall short, but never by half, and pacing never runs ahead
+      assertTrue(achieved >= rate / 2, "Played " + achieved + " moves per second");
+      assertTrue(achieved <= rate * 1.05 + 1, "Played " + achieved + " moves per second");
+    }
+  }
+
+  @Test
+  @DisplayName("Should release the grid as soon as it is stopped")
+  void testStopWaitsForWorker() {
+    autoplay.setRate(1);
+    autoplay.start(new Grid(4, 3L), (values, score) -> {}, () -> {});
+
+    long start = System.nanoTime();
+    autoplay.stop();
+
+    assertFalse(autoplay.isRunning());
+    assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+    assertThrows(IllegalArgumentException.class, () -> autoplay.setRate(-1));
+  }
+}
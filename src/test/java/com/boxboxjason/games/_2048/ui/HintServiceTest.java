@@ -0,0 +1,149 @@
+package com.boxboxjason.games._2048.ui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.boxboxjason.games._2048.Direction;
+import com.boxboxjason.games._2048.Grid;
+import com.boxboxjason.games._2048.Zobrist;
+import com.boxboxjason.games._2048.solver.AnytimeSearch;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** Test suite for the background hint search, publishing directly instead of on the FX thread. */
+@DisplayName("HintService Test Suite")
+class HintServiceTest {
+  // 2 4 / 8 _ : only RIGHT and DOWN move a tile
+  private static final byte[] CELLS = {1, 2, 3, 0};
+
+  private final Duration budget = Duration.ofMillis(20);
+  private final HintService hints =
+      new HintService(new AnytimeSearch(budget), budget, Runnable::run);
+
+  @AfterEach
+  void tearDown() {
+    hints.close();
+  }
+
+  @Test
+  @DisplayName("Should publish a legal hint off the calling thread")
+  void testPublishesHint() throws InterruptedException {
+    CountDownLatch published = new CountDownLatch(1);
+    AtomicReference<Direction> hint = new AtomicReference<>();
+    AtomicReference<Thread> thread = new AtomicReference<>();
+
+    hints.request(
+        CELLS,
+        2,
+        7L,
+        () -> 7L,
+        direction -> {
+          hint.set(direction);
+          thread.set(Thread.currentThread());
+          published.countDown();
+        });
+
+    assertTrue(published.await(5, TimeUnit.SECONDS));
+    assertTrue(hint.get() == Direction.RIGHT || hint.get() == Direction.DOWN);
+    assertNotSame(Thread.currentThread(), thread.get());
+  }
+
+  @Test
+  @DisplayName("Should drop hints for a board that has changed")
+  void testDropsStaleHint() throws InterruptedException {
+    CountDownLatch checked = new CountDownLatch(1);
+    AtomicInteger delivered = new AtomicInteger();
+
+    hints.request(
+        CELLS,
+        2,
+        7L,
+        () -> {
+          checked.countDown();
+          return 8L;
+        },
+        direction -> delivered.incrementAndGet());
+
+    assertTrue(checked.await(5, TimeUnit.SECONDS));
+    assertEquals(0, delivered.get());
+  }
+
+  @Test
+  @DisplayName("Should deliver only the latest request")
+  void testCancelsPreviousRequest() throws InterruptedException {
+    CountDownLatch latest = new CountDownLatch(1);
+    AtomicInteger stale = new AtomicInteger();
+
+    // A 6x6 search takes far longer than it takes to issue the next request
+    byte[] large = new byte[36];
+    large[0] = 1;
+    large[35] = 2;
+    hints.request(large, 6, 1L, () -> 1L, direction -> stale.incrementAndGet());
+    hints.request(CELLS, 2, 2L, () -> 2L, direction -> latest.countDown());
+
+    assertTrue(latest.await(5, TimeUnit.SECONDS));
+    assertEquals(0, stale.get());
+  }
+
+  @Test
+  @DisplayName("Should answer a speculated successor at once")
+  void testAnswersSuccessorFromCache() throws InterruptedException {
+    hints.request(CELLS, 2, Zobrist.hash(CELLS, 2), () -> 0L, direction -> {});
+    // The 2x2 board has only a handful of successors, speculated within a few budgets
+    long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    byte[] successor = new byte[4];
+    // 2 4 / 8 _ moved RIGHT is 2 4 / _ 8, then a 2 spawns in the gap
+    Grid.slide(CELLS, successor, 2, Direction.RIGHT);
+    successor[2] = 1;
+    long key = Zobrist.hash(successor, 2);
+    while (!hints.getCache().contains(key) && System.nanoTime() < giveUp) {
+      Thread.sleep(10);
+    }
+
+    AtomicReference<Direction> hint = new AtomicReference<>();
+    hints.request(successor, 2, key, () -> key, hint::set);
+
+    assertNotNull(hint.get());
+    assertEquals(1, hints.getCache().hits());
+  }
+
+  @Nested
+  @DisplayName("Cache Tests")
+  class CacheTests {
+
+    @Test
+    @DisplayName("Should keep only the current board when advancing")
+    void testAdvanceDropsStaleEntries() {
+      HintCache cache = new HintCache(8);
+      int generation = cache.generation();
+      cache.put(1L, Direction.UP, generation);
+      cache.put(2L, Direction.DOWN, generation);
+
+      int next = cache.advance(2L);
+
+      assertEquals(1, cache.size());
+      assertEquals(Direction.DOWN, cache.get(2L));
+      assertNull(cache.get(1L));
+      assertFalse(cache.put(3L, Direction.LEFT, generation));
+      assertTrue(cache.put(3L, Direction.LEFT, next));
+    }
+
+    @Test
+    @DisplayName("Should stop accepting entries when full")
+    void testBounded() {
+      HintCache cache = new HintCache(2);
+      int generation = cache.generation();
+
+      assertTrue(cache.put(1L, Direction.UP, generation));
+      assertTrue(cache.put(2L, Direction.UP, generation));
+      assertFalse(cache.put(3L, Direction.UP, generation));
+      assertEquals(2, cache.size());
+    }
+  }
+}